@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.gradle.testkit.runner.GradleRunner;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Runs the {@code compileDrools} task end to end against a generated rule corpus, in a warm Gradle
+ * daemon. The peak heap usage and the duration of the Drools build phase are read from the compile
+ * report and published as secondary results.
+ *
+ * @author Kevin Wimmer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompileDroolsBenchmark {
+
+    private static final Pattern PEAK_HEAP_PATTERN = Pattern.compile("\"peakHeapBytes\": (\\d+)");
+    private static final Pattern BUILD_PHASE_PATTERN = Pattern.compile("\"build\": (\\d+)");
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int ruleCount;
+
+    @Param({"5", "50"})
+    public int factTypeCount;
+
+    private File projectDir;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CompileMetrics {
+
+        public long peakHeapMegabytes;
+        public long buildPhaseMillis;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            peakHeapMegabytes = 0;
+            buildPhaseMillis = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createProject() throws IOException {
+        projectDir = Files.createTempDirectory("compile-drools-benchmark").toFile();
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'benchmark'");
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+                plugins {
+                  id 'io.github.kevin-wimmer.kjar'
+                }
+                group = 'org.example'
+                version = '1.0.0'
+                """);
+        RuleCorpus.writeDrl(new File(projectDir, "src/main/resources"), ruleCount, factTypeCount);
+        // warm up the daemon and the compiler class loaders
+        runCompileDrools();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteProject() throws IOException {
+        try (Stream<Path> paths = Files.walk(projectDir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void compileDrools(CompileMetrics metrics) throws IOException {
+        runCompileDrools();
+        String report = Files.readString(new File(projectDir, "build/reports/drools/compileDrools/report.json").toPath());
+        metrics.peakHeapMegabytes = find(PEAK_HEAP_PATTERN, report) / (1024 * 1024);
+        metrics.buildPhaseMillis = find(BUILD_PHASE_PATTERN, report);
+    }
+
+    private void runCompileDrools() {
+        GradleRunner.create()
+                .withProjectDir(projectDir)
+                .withPluginClasspath()
+                .withArguments("compileDrools", "--rerun-tasks")
+                .build();
+    }
+
+    private static long find(Pattern pattern, String report) {
+        Matcher matcher = pattern.matcher(report);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+}
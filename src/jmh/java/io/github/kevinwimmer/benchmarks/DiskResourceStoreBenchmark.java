@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.util.PortablePath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.kevinwimmer.kie.resources.DiskResourceStore;
+
+/**
+ * Measures writing and reading resources through the {@link DiskResourceStore}, as the compilation cache
+ * does for the KieModule metadata.
+ *
+ * @author Kevin Wimmer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DiskResourceStoreBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int resourceCount;
+
+    private final List<PortablePath> paths = new ArrayList<>();
+    private final List<byte[]> contents = new ArrayList<>();
+    private File root;
+    private DiskResourceStore store;
+
+    @Setup(Level.Trial)
+    public void createResources() throws IOException {
+        for (Map.Entry<String, byte[]> classFile : RuleCorpus.classFiles(resourceCount).entrySet()) {
+            paths.add(PortablePath.of(classFile.getKey()));
+            contents.add(classFile.getValue());
+        }
+        root = Files.createTempDirectory("resource-store").toFile();
+        store = new DiskResourceStore(root);
+        write();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteResources() throws IOException {
+        GeneratedFileWriterBenchmark.delete(root);
+    }
+
+    @Benchmark
+    public void write() {
+        for (int i = 0; i < paths.size(); i++) {
+            store.write(paths.get(i), contents.get(i), true);
+        }
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) {
+        for (PortablePath path : paths) {
+            blackhole.consume(store.read(path));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.github.kevinwimmer.kie.resources.GeneratedFileWriter;
+
+/**
+ * Measures writing the generated class files of a KieModule, both into an empty output directory and
+ * over an output directory that already holds identical files.
+ *
+ * @author Kevin Wimmer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GeneratedFileWriterBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int ruleCount;
+
+    private Map<String, byte[]> classFiles;
+    private File emptyDir;
+    private File populatedDir;
+
+    @Setup(Level.Trial)
+    public void createClassFiles() throws IOException {
+        classFiles = RuleCorpus.classFiles(ruleCount);
+        populatedDir = Files.createTempDirectory("populated").toFile();
+        new GeneratedFileWriter(populatedDir).write(classFiles);
+    }
+
+    @Setup(Level.Invocation)
+    public void createEmptyDirectory() throws IOException {
+        emptyDir = Files.createTempDirectory("empty").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteEmptyDirectory() throws IOException {
+        delete(emptyDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void deletePopulatedDirectory() throws IOException {
+        delete(populatedDir);
+    }
+
+    @Benchmark
+    public int writeClassFiles() {
+        GeneratedFileWriter writer = new GeneratedFileWriter(emptyDir);
+        writer.write(classFiles);
+        return writer.getWrittenCount();
+    }
+
+    @Benchmark
+    public int writeUnchangedClassFiles() {
+        GeneratedFileWriter writer = new GeneratedFileWriter(populatedDir);
+        writer.write(classFiles);
+        return writer.getUnchangedCount();
+    }
+
+    static void delete(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
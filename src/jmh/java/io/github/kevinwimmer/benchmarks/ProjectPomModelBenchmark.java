@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.kie.api.builder.ReleaseId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.github.kevinwimmer.maven.pom.ProjectPomModel;
+
+/**
+ * Measures the dependency lookups the Drools compiler performs on the {@link ProjectPomModel}.
+ *
+ * @author Kevin Wimmer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectPomModelBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int dependencyCount;
+
+    @Param({"10", "50"})
+    public int configurationCount;
+
+    private ProjectPomModel pomModel;
+
+    @Setup(Level.Trial)
+    public void createPomModel() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        for (int config = 0; config < configurationCount; config++) {
+            List<String> coordinates = new ArrayList<>();
+            for (int dep = 0; dep < dependencyCount; dep++) {
+                coordinates.add("org.example:artifact" + dep + ":1.0." + config);
+            }
+            dependencies.put("configuration" + config, coordinates);
+        }
+        pomModel = new ProjectPomModel("org.example:benchmark:1.0.0", null, dependencies);
+    }
+
+    @Benchmark
+    public Collection<ReleaseId> getDependencies() {
+        return pomModel.getDependencies();
+    }
+
+    @Benchmark
+    public Collection<ReleaseId> getFilteredDependencies() {
+        return pomModel.getDependencies((dependency, scope) -> "configuration0".equals(scope));
+    }
+}
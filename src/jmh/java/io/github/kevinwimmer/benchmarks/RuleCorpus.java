@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates synthetic Drools sources and class files for the benchmarks.
+ * <p>
+ *   Rules are spread across packages of {@value #RULES_PER_PACKAGE} rules, with {@value #RULES_PER_FILE}
+ *   rules per DRL file. Each rule joins two of the declared fact types, so that the number of fact types
+ *   controls how many object type nodes the rules share.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public final class RuleCorpus {
+
+    public static final int RULES_PER_PACKAGE = 1000;
+    public static final int RULES_PER_FILE = 100;
+
+    private static final String FACTS_PACKAGE = "org.example.facts";
+    private static final String RULES_PACKAGE = "org.example.rules";
+    private static final int CLASS_FILE_SIZE = 2048;
+
+    private RuleCorpus() {
+    }
+
+    /**
+     * Writes the DRL sources of the given number of rules and fact types beneath the given resources
+     * directory.
+     */
+    public static void writeDrl(File resourcesDir, int ruleCount, int factTypeCount) throws IOException {
+        StringBuilder types = new StringBuilder("package ").append(FACTS_PACKAGE).append(";\n");
+        for (int type = 0; type < factTypeCount; type++) {
+            types.append("declare Fact").append(type).append('\n')
+                    .append("  id : int\n  value : int\n  name : String\nend\n");
+        }
+        writeString(new File(resourcesDir, FACTS_PACKAGE.replace('.', '/') + "/facts.drl"), types.toString());
+
+        for (int first = 0; first < ruleCount; first += RULES_PER_FILE) {
+            String pkg = RULES_PACKAGE + ".p" + (first / RULES_PER_PACKAGE);
+            StringBuilder drl = new StringBuilder("package ").append(pkg).append(";\n");
+            for (int type = 0; type < factTypeCount; type++) {
+                drl.append("import ").append(FACTS_PACKAGE).append(".Fact").append(type).append(";\n");
+            }
+            for (int rule = first; rule < Math.min(first + RULES_PER_FILE, ruleCount); rule++) {
+                drl.append("rule \"Rule ").append(rule).append("\"\nwhen\n")
+                        .append("  $a : Fact").append(rule % factTypeCount)
+                        .append("(value > ").append(rule % 100).append(", name != null)\n")
+                        .append("  $b : Fact").append((rule + 1) % factTypeCount).append("(id == $a.id)\n")
+                        .append("then\n  $b.setValue($a.getValue() + 1);\nend\n");
+            }
+            writeString(new File(resourcesDir, pkg.replace('.', '/') + "/rules" + (first / RULES_PER_FILE) + ".drl"), drl.toString());
+        }
+    }
+
+    /**
+     * Returns pseudo-random class file contents laid out like the classes generated for the given
+     * number of rules, keyed by path.
+     */
+    public static Map<String, byte[]> classFiles(int ruleCount) {
+        Random random = new Random(ruleCount);
+        Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        for (int rule = 0; rule < ruleCount; rule++) {
+            byte[] content = new byte[CLASS_FILE_SIZE];
+            random.nextBytes(content);
+            String pkg = RULES_PACKAGE.replace('.', '/') + "/p" + (rule / RULES_PER_PACKAGE);
+            classFiles.put(pkg + "/Rule_Rule_" + rule + "DefaultConsequenceInvoker.class", content);
+        }
+        return classFiles;
+    }
+
+    private static void writeString(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.dsl;
+
+import org.gradle.api.Named;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+
+import io.github.kevinwimmer.kie.benchmark.FactDataset;
+
+/**
+ * Declares a set of facts inserted into each session of the {@code benchmarkRules} task, either
+ * generated or read from a fixture (see {@link FactDataset}).
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class BenchmarkDataset implements Named {
+
+    @Override
+    public abstract String getName();
+
+    /**
+     * The class name of the facts read from the {@link #getFixture() fixture}.
+     */
+    public abstract Property<String> getFactType();
+
+    /**
+     * A CSV or JSON file of facts.
+     */
+    public abstract RegularFileProperty getFixture();
+
+    /**
+     * An MVEL expression generating each fact, with the variable {@code i} bound to the fact index,
+     * e.g. {@code new org.example.Order(i, i * 1.5)}.
+     */
+    public abstract Property<String> getGenerator();
+
+    /**
+     * The number of facts generated. Defaults to {@code 1}.
+     */
+    public abstract Property<Integer> getCount();
+}
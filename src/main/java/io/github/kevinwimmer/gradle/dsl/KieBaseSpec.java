@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.dsl;
+
+import org.gradle.api.Named;
+import org.gradle.api.NamedDomainObjectContainer;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+
+/**
+ * Declares a {@code <kbase>} of the generated {@code kmodule.xml}.
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class KieBaseSpec implements Named {
+
+    @Override
+    public abstract String getName();
+
+    /**
+     * The rule packages included in the KieBase. All packages are included if none are given.
+     */
+    public abstract ListProperty<String> getPackages();
+
+    /**
+     * The names of other KieBases whose rules are included in this KieBase.
+     */
+    public abstract ListProperty<String> getIncludes();
+
+    public abstract Property<Boolean> getDefaultKieBase();
+
+    /**
+     * The event processing mode, either {@code cloud} or {@code stream}.
+     */
+    public abstract Property<String> getEventProcessingMode();
+
+    /**
+     * The equality behavior, either {@code identity} or {@code equality}.
+     */
+    public abstract Property<String> getEqualsBehavior();
+
+    public abstract NamedDomainObjectContainer<KieSessionSpec> getKsessions();
+
+    void appendXml(StringBuilder xml) {
+        xml.append("  <kbase");
+        appendAttribute(xml, "name", getName());
+        if (!getPackages().get().isEmpty()) {
+            appendAttribute(xml, "packages", String.join(",", getPackages().get()));
+        }
+        if (!getIncludes().get().isEmpty()) {
+            appendAttribute(xml, "includes", String.join(",", getIncludes().get()));
+        }
+        appendAttribute(xml, "default", getDefaultKieBase());
+        appendAttribute(xml, "eventProcessingMode", getEventProcessingMode());
+        appendAttribute(xml, "equalsBehavior", getEqualsBehavior());
+        if (getKsessions().isEmpty()) {
+            xml.append("/>\n");
+            return;
+        }
+        xml.append(">\n");
+        for (KieSessionSpec ksession : getKsessions()) {
+            ksession.appendXml(xml);
+        }
+        xml.append("  </kbase>\n");
+    }
+
+    static void appendAttribute(StringBuilder xml, String name, Property<?> value) {
+        if (value.isPresent()) {
+            appendAttribute(xml, name, String.valueOf(value.get()));
+        }
+    }
+
+    static void appendAttribute(StringBuilder xml, String name, String value) {
+        xml.append(' ').append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> xml.append("&amp;");
+                case '<' -> xml.append("&lt;");
+                case '>' -> xml.append("&gt;");
+                case '"' -> xml.append("&quot;");
+                case '\'' -> xml.append("&apos;");
+                default -> xml.append(c);
+            }
+        }
+        xml.append('"');
+    }
+}
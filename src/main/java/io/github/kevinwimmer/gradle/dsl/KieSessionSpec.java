@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.dsl;
+
+import org.gradle.api.Named;
+import org.gradle.api.provider.Property;
+
+/**
+ * Declares a {@code <ksession>} of a {@link KieBaseSpec KieBase}.
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class KieSessionSpec implements Named {
+
+    @Override
+    public abstract String getName();
+
+    /**
+     * The session type, either {@code stateful} or {@code stateless}.
+     */
+    public abstract Property<String> getType();
+
+    public abstract Property<Boolean> getDefaultKieSession();
+
+    /**
+     * The clock type, either {@code realtime} or {@code pseudo}.
+     */
+    public abstract Property<String> getClockType();
+
+    void appendXml(StringBuilder xml) {
+        xml.append("    <ksession");
+        KieBaseSpec.appendAttribute(xml, "name", getName());
+        KieBaseSpec.appendAttribute(xml, "type", getType());
+        KieBaseSpec.appendAttribute(xml, "default", getDefaultKieSession());
+        KieBaseSpec.appendAttribute(xml, "clockType", getClockType());
+        xml.append("/>\n");
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.dsl;
+
+import org.gradle.api.NamedDomainObjectContainer;
+
+/**
+ * The {@code kjar} project extension, which declares the contents of the generated {@code kmodule.xml}.
+ * <pre>
+ * kjar {
+ *   kbases {
+ *     rules {
+ *       packages = ['org.example.rules']
+ *       defaultKieBase = true
+ *       ksessions {
+ *         rulesSession {
+ *           type = 'stateless'
+ *         }
+ *       }
+ *     }
+ *   }
+ * }
+ * </pre>
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class KjarExtension {
+
+    public static final String NAME = "kjar";
+
+    private static final String KMODULE_NAMESPACE = "http://www.drools.org/xsd/kmodule";
+
+    public abstract NamedDomainObjectContainer<KieBaseSpec> getKbases();
+
+    /**
+     * Renders the declared KieBases as a {@code kmodule.xml} document. Without any declared KieBase, the
+     * module is empty and Drools creates a default KieBase containing all rules.
+     */
+    public String toKmoduleXml() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        if (getKbases().isEmpty()) {
+            return xml.append("<kmodule xmlns=\"").append(KMODULE_NAMESPACE).append("\"/>").toString();
+        }
+        xml.append("<kmodule xmlns=\"").append(KMODULE_NAMESPACE).append("\">\n");
+        for (KieBaseSpec kbase : getKbases()) {
+            kbase.appendXml(xml);
+        }
+        return xml.append("</kmodule>").toString();
+    }
+}
@@ -15,16 +15,45 @@
 
 package io.github.kevinwimmer.gradle.plugins;
 
+import java.io.File;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.attributes.Category;
+import org.gradle.api.attributes.LibraryElements;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.component.AdhocComponentWithVariants;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.jvm.toolchain.JavaToolchainService;
+import org.gradle.language.base.plugins.LifecycleBasePlugin;
 
+import io.github.kevinwimmer.gradle.dsl.KjarExtension;
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+import io.github.kevinwimmer.gradle.tasks.AnalyzeRete;
+import io.github.kevinwimmer.gradle.tasks.BenchmarkRules;
 import io.github.kevinwimmer.gradle.tasks.CompileDrools;
+import io.github.kevinwimmer.gradle.tasks.DroolsDev;
+import io.github.kevinwimmer.gradle.tasks.GenerateKieCds;
 import io.github.kevinwimmer.gradle.tasks.GenerateKmoduleXml;
 import io.github.kevinwimmer.gradle.tasks.GeneratePomProperties;
+import io.github.kevinwimmer.gradle.tasks.ValidateDrools;
+import io.github.kevinwimmer.maven.pom.ProjectPomModel;
 
 /**
  * A Gradle plugin that extends the {@code JavaPlugin} to compile Drools source files and assemble a
@@ -35,30 +64,344 @@ public abstract class KjarPlugin implements Plugin<Project> {
     public static final String COMPILE_DROOLS_TASK_NAME = "compileDrools";
     public static final String GENERATE_POM_PROPERTIES_TASK_NAME = "generatePomProperties";
     public static final String GENERATE_KMODULE_XML_TASK_NAME = "generateKmoduleXml";
+    public static final String VALIDATE_DROOLS_TASK_NAME = "validateDrools";
+    public static final String DROOLS_DEV_TASK_NAME = "droolsDev";
+    public static final String BENCHMARK_RULES_TASK_NAME = "benchmarkRules";
+    public static final String ANALYZE_RETE_TASK_NAME = "analyzeRete";
+    public static final String GENERATE_KIE_CDS_TASK_NAME = "generateKieCds";
+
+    /**
+     * The {@link LibraryElements} of the outgoing variant holding the Kie JAR, through which downstream
+     * Kie JAR projects link against it.
+     */
+    public static final String KJAR_LIBRARY_ELEMENTS = "kjar";
+
+    /**
+     * The {@link Category} of the published variant holding the CDS archive of the Kie JAR. It is not a
+     * library, so that consumers resolving the runtime classpath of the project never select it.
+     */
+    public static final String KIE_CDS_CATEGORY = "kie-cds";
+
+    /**
+     * The consumable configuration holding the CDS archive of the Kie JAR.
+     */
+    public static final String KIE_CDS_ELEMENTS_CONFIGURATION_NAME = "kieCdsElements";
+
+    /**
+     * The Gradle property limiting the number of compiler class loaders kept between builds.
+     */
+    public static final String MAX_CACHED_CLASS_LOADERS_PROPERTY = "kjar.maxCachedClassLoaders";
+
+    /**
+     * The Gradle property setting the number of days after which unused entries of the caches in the
+     * Gradle user home are deleted.
+     */
+    public static final String CACHE_RETENTION_DAYS_PROPERTY = "kjar.cacheRetentionDays";
 
     @Override
     public void apply(final Project project) {
         project.getPluginManager().apply(JavaPlugin.class);
 
-        project.getTasks().register(COMPILE_DROOLS_TASK_NAME, CompileDrools.class,
-                task -> task.setDescription("Compiles the Drools source files."));
-        project.getTasks().register(GENERATE_KMODULE_XML_TASK_NAME, GenerateKmoduleXml.class,
-                task -> task.setDescription("Generates a kmodule.xml file."));
-        project.getTasks().register(GENERATE_POM_PROPERTIES_TASK_NAME, GeneratePomProperties.class,
-                task -> task.setDescription("Generates a Maven pom.properties file."));
-
-        configureBuild(project);
+        final SourceSet main = getMainSourceSet(project);
+        final KjarExtension extension = project.getExtensions().create(KjarExtension.NAME, KjarExtension.class);
+        final Provider<String> kmoduleXml = project.provider(extension::toKmoduleXml);
+        final Provider<DroolsCompilerService> compilerService = project.getGradle().getSharedServices()
+                .registerIfAbsent(DroolsCompilerService.NAME, DroolsCompilerService.class, spec -> {
+                    spec.getParameters()
+                            .getMaxClassLoaders()
+                            .set(project.getProviders().gradleProperty(MAX_CACHED_CLASS_LOADERS_PROPERTY).map(Integer::valueOf).orElse(4));
+                    spec.getParameters()
+                            .getClasspathIndexDirectory()
+                            .set(new File(project.getGradle().getGradleUserHomeDir(), "caches/kjar/classpath-index"));
+                    spec.getParameters()
+                            .getClasspathIndexRetentionDays()
+                            .set(getCacheRetentionDays(project));
+                });
+        project.getExtensions()
+                .getByType(JavaPluginExtension.class)
+                .getSourceSets()
+                .all(sourceSet -> configureSourceSet(project, sourceSet, kmoduleXml, compilerService));
+        project.getTasks().register(DROOLS_DEV_TASK_NAME, DroolsDev.class, task -> {
+            task.setDescription("Continuously reloads changed Drools source files into a warm KieContainer.");
+            task.getInputDirectories().from(main.getResources().getSourceDirectories());
+            task.getClasspath().from(main.getCompileClasspath(), main.getOutput().getClassesDirs());
+            task.getFactsDirectory().convention(project.getLayout().getBuildDirectory().dir("drools-dev/facts"));
+            task.getReleaseId().convention(project.provider(() -> ProjectPomModel.toCoordinates(project)));
+            task.getKmoduleXml().convention(kmoduleXml);
+            task.getCompilerService().convention(compilerService);
+            task.usesService(compilerService);
+        });
+        final Provider<RegularFile> kjarFile = project.getTasks()
+                .named(JavaPlugin.JAR_TASK_NAME, Jar.class)
+                .flatMap(Jar::getArchiveFile);
+        project.getTasks().register(BENCHMARK_RULES_TASK_NAME, BenchmarkRules.class, task -> {
+            task.setDescription("Measures the throughput, latency and allocation of the rules against fact datasets.");
+            task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+            task.getKjarFile().convention(kjarFile);
+            task.getClasspath().from(main.getRuntimeClasspath().minus(main.getOutput()));
+            task.getDatasets().configureEach(dataset -> dataset.getCount().convention(1));
+            task.getWarmupIterations().convention(5);
+            task.getIterations().convention(20);
+            task.getBaselineFile().convention(project.getLayout().getProjectDirectory().file("src/benchmark/rules-baseline.properties"));
+            task.getMaxRegressionPercent().convention(10.0);
+            task.getUpdateBaseline().convention(false);
+            task.getResultsFile().convention(project.getLayout().getBuildDirectory().file("reports/drools/benchmarkRules/results.json"));
+        });
+        project.getTasks().register(ANALYZE_RETE_TASK_NAME, AnalyzeRete.class, task -> {
+            task.setDescription("Analyzes the Rete network of each KieBase for expensive joins.");
+            task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+            task.getKjarFile().convention(kjarFile);
+            task.getClasspath().from(main.getRuntimeClasspath().minus(main.getOutput()));
+            task.getReportDirectory().convention(project.getLayout().getBuildDirectory().dir("reports/drools/analyzeRete"));
+            task.getCompilerService().convention(compilerService);
+            task.usesService(compilerService);
+        });
+        project.getTasks().register(GENERATE_KIE_CDS_TASK_NAME, GenerateKieCds.class, task -> {
+            task.setDescription("Generates a Class Data Sharing archive for applications using the Kie JAR.");
+            task.setGroup(LifecycleBasePlugin.BUILD_GROUP);
+            task.getKjarFile().convention(kjarFile);
+            task.getClasspath().from(main.getRuntimeClasspath().minus(main.getOutput()));
+            task.getJavaLauncher().convention(project.getExtensions()
+                    .getByType(JavaToolchainService.class)
+                    .launcherFor(project.getExtensions().getByType(JavaPluginExtension.class).getToolchain()));
+            task.getClassListFile().convention(project.getLayout().getBuildDirectory().file("kie-cds/classlist"));
+            task.getArchiveFile().convention(project.getTasks()
+                    .named(JavaPlugin.JAR_TASK_NAME, Jar.class)
+                    .flatMap(jar -> jar.getDestinationDirectory().file(jar.getArchiveFileName()
+                            .map(name -> name.replaceFirst("\\.jar$", "") + ".jsa"))));
+        });
+        configureKjarVariant(project);
+        configureKieCdsVariant(project);
     }
 
-    private static void configureBuild(Project project) {
+    /**
+     * Registers the tasks compiling the Drools source files of the given source set into a Kie JAR:
+     * {@code compileDrools}, {@code generateKmoduleXml} and {@code generatePomProperties} for the
+     * {@code main} source set, and {@code compile<SourceSet>Drools}, {@code generate<SourceSet>KmoduleXml},
+     * {@code generate<SourceSet>PomProperties} and {@code <sourceSet>Kjar} for any other. The
+     * {@code validateDrools} or {@code validate<SourceSet>Drools} task validates the same sources. The tasks of
+     * other source sets only run if the source set contains Drools source files. Their Kie JARs are
+     * identified by the artifact ID {@code <project>-<source-set>} and are built on demand, e.g. when a
+     * downstream project selects them.
+     */
+    private static void configureSourceSet(Project project, SourceSet sourceSet, Provider<String> kmoduleXml,
+            Provider<DroolsCompilerService> compilerService) {
+        final boolean main = SourceSet.MAIN_SOURCE_SET_NAME.equals(sourceSet.getName());
+        final String artifactSuffix = main ? "" : "-" + toKebabCase(sourceSet.getName());
+        final String compileDroolsTaskName = sourceSet.getTaskName("compile", "Drools");
+        final String generateKmoduleXmlTaskName = sourceSet.getTaskName("generate", "KmoduleXml");
+        final String generatePomPropertiesTaskName = sourceSet.getTaskName("generate", "PomProperties");
+        final String jarTaskName = main ? JavaPlugin.JAR_TASK_NAME : sourceSet.getTaskName(null, "kjar");
+        final FileCollection droolsSources = sourceSet
+                .getResources()
+                .getSourceDirectories()
+                .getAsFileTree()
+                .matching(patterns -> patterns.include(CompileDrools.DROOLS_SOURCE_PATTERNS));
         final TaskContainer tasks = project.getTasks();
-        tasks.named(JavaPlugin.CLASSES_TASK_NAME,
-                task -> task.dependsOn(tasks.named(COMPILE_DROOLS_TASK_NAME)));
-        tasks.named(COMPILE_DROOLS_TASK_NAME,
-                task -> task.setMustRunAfter(Arrays.asList(tasks.named(JavaPlugin.COMPILE_JAVA_TASK_NAME))));
-        tasks.named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME, task -> {
-            task.finalizedBy(tasks.named(GENERATE_KMODULE_XML_TASK_NAME));
-            task.finalizedBy(tasks.named(GENERATE_POM_PROPERTIES_TASK_NAME));
+        final Provider<Directory> decisionTableCacheDir = project.getLayout().dir(project.provider(() ->
+                new File(project.getGradle().getGradleUserHomeDir(), "caches/kjar/decision-tables")));
+        final Provider<Integer> cacheRetentionDays = getCacheRetentionDays(project);
+
+        TaskProvider<CompileDrools> compileDrools = tasks.register(compileDroolsTaskName, CompileDrools.class, task -> {
+            task.setDescription("Compiles the Drools source files of the " + sourceSet.getName() + " source set.");
+            task.getInputDirectories().from(sourceSet.getResources().getSourceDirectories());
+            task.getSources().from(droolsSources);
+            task.getClasspath().from(sourceSet.getCompileClasspath(), sourceSet.getOutput().getClassesDirs());
+            task.getUpstreamKjars().from(getUpstreamKjars(project, sourceSet));
+            task.getOutputDirectory().convention(project.getLayout().getBuildDirectory().dir("classes/drools/" + sourceSet.getName()));
+            task.getReleaseId().convention(project.provider(() -> ProjectPomModel.toCoordinates(project, project.getName() + artifactSuffix)));
+            task.getParentReleaseId().convention(project.provider(() -> ProjectPomModel.toCoordinates(project.getParent())));
+            task.getDependencies().convention(project.provider(() -> ProjectPomModel.collectDependencies(project, sourceSet)));
+            task.getDependencies().finalizeValueOnRead();
+            task.getKmoduleXml().convention(kmoduleXml);
+            task.getMaxParallelKieBases().convention(Runtime.getRuntime().availableProcessors());
+            task.getMaxRulesPerShard().convention(0);
+            task.getDecisionTableCacheDirectory().convention(decisionTableCacheDir);
+            task.getDecisionTableCacheRetentionDays().convention(cacheRetentionDays);
+            task.getExecutableModel().convention(false);
+            task.getKieBaseSnapshots().convention(false);
+            task.getIncremental().convention(false);
+            task.getIsolation().convention(CompileDrools.ISOLATION_NONE);
+            task.getCompilerService().convention(compilerService);
+            task.usesService(compilerService);
+            task.getReportDirectory().convention(project.getLayout().getBuildDirectory().dir("reports/drools/" + task.getName()));
+            task.getStateDirectory().convention(project.getLayout().getBuildDirectory().dir("tmp/" + task.getName() + "/state"));
+            task.getDirectArchive().convention(false);
+            // named after the archive of the jar task, which still builds its own archive
+            task.getArchiveFile().convention(task.getDirectArchive()
+                    .filter(Boolean::booleanValue)
+                    .flatMap(enabled -> tasks.named(jarTaskName, Jar.class).flatMap(jar -> project.getLayout()
+                            .getBuildDirectory()
+                            .dir("kjar")
+                            .flatMap(dir -> dir.file(jar.getArchiveFileName())))));
+            task.getArchiveDirectories().from((Callable<Object>) () -> task.getDirectArchive().get()
+                    ? List.of(project.files(sourceSet.getOutput().getResourcesDir()).builtBy(
+                            sourceSet.getProcessResourcesTaskName(), generateKmoduleXmlTaskName, generatePomPropertiesTaskName),
+                            sourceSet.getOutput().getClassesDirs())
+                    : List.of());
+            task.getArchiveCompressionLevel().convention(-1);
+            task.setMustRunAfter(Arrays.asList(tasks.named(sourceSet.getCompileJavaTaskName())));
+        });
+        sourceSet.getOutput().dir(Map.of("builtBy", compileDrools), compileDrools.flatMap(CompileDrools::getOutputDirectory));
+        tasks.register(sourceSet.getTaskName("validate", "Drools"), ValidateDrools.class, task -> {
+            task.setDescription("Parses the Drools source files of the " + sourceSet.getName()
+                    + " source set and resolves their fact types and fields, without generating code.");
+            task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+            task.getInputDirectories().from(sourceSet.getResources().getSourceDirectories());
+            task.getSources().from(droolsSources);
+            task.getClasspath().from(sourceSet.getCompileClasspath(), sourceSet.getOutput().getClassesDirs());
+            task.getReportFile().convention(project.getLayout().getBuildDirectory().file("reports/drools/" + task.getName() + "/problems.txt"));
+            task.getDecisionTableCacheDirectory().convention(decisionTableCacheDir);
+            task.getDecisionTableCacheRetentionDays().convention(cacheRetentionDays);
+            task.getCompilerService().convention(compilerService);
+            task.usesService(compilerService);
+        });
+        TaskProvider<GenerateKmoduleXml> generateKmoduleXml = tasks.register(generateKmoduleXmlTaskName, GenerateKmoduleXml.class, task -> {
+            task.setDescription("Generates a kmodule.xml file.");
+            task.getKmoduleXml().convention(compileDrools.flatMap(CompileDrools::getKmoduleXml));
+            task.getOutputFile().convention(project.getLayout().file(project.provider(() ->
+                    new File(sourceSet.getOutput().getResourcesDir(), "META-INF/kmodule.xml"))));
+        });
+        TaskProvider<GeneratePomProperties> generatePomProperties = tasks.register(generatePomPropertiesTaskName, GeneratePomProperties.class, task -> {
+            task.setDescription("Generates a Maven pom.properties file.");
+            task.getGroupId().convention(project.provider(() -> project.getGroup().toString()));
+            task.getArtifactId().convention(project.provider(() -> project.getName() + artifactSuffix));
+            task.getVersion().convention(project.provider(() -> project.getVersion().toString()));
+            task.getOutputFile().convention(project.getLayout().file(project.provider(() ->
+                    new File(sourceSet.getOutput().getResourcesDir(),
+                            String.format("META-INF/maven/%s/%s/pom.properties", task.getGroupId().get(), task.getArtifactId().get())))));
+        });
+        tasks.named(sourceSet.getClassesTaskName(), task -> task.dependsOn(compileDrools));
+        tasks.named(sourceSet.getProcessResourcesTaskName(), task -> {
+            task.finalizedBy(generateKmoduleXml);
+            task.finalizedBy(generatePomProperties);
+        });
+
+        if (!main) {
+            tasks.register(jarTaskName, Jar.class, task -> {
+                task.setDescription("Assembles the Kie JAR of the " + sourceSet.getName() + " source set.");
+                task.setGroup(LifecycleBasePlugin.BUILD_GROUP);
+                task.from(sourceSet.getOutput());
+                task.getArchiveClassifier().convention(toKebabCase(sourceSet.getName()));
+            });
+            // source sets without Drools source files (e.g. plain unit tests) are not turned into Kie JARs
+            for (String taskName : List.of(compileDroolsTaskName, generateKmoduleXmlTaskName, generatePomPropertiesTaskName, jarTaskName)) {
+                tasks.named(taskName, task -> task.onlyIf("the " + sourceSet.getName() + " source set contains Drools source files",
+                        spec -> !droolsSources.isEmpty()));
+            }
+            configureKjarVariant(project, sourceSet, jarTaskName, compileDrools, project.getName() + artifactSuffix);
+        }
+    }
+
+    /**
+     * Publishes the Kie JAR of a source set other than {@code main} through its own consumable
+     * configuration, so that downstream Kie JAR projects can select it by its capability
+     * {@code <group>:<artifactId>}.
+     */
+    private static void configureKjarVariant(Project project, SourceSet sourceSet, String jarTaskName,
+            TaskProvider<CompileDrools> compileDrools, String artifactId) {
+        final TaskProvider<Jar> jar = project.getTasks().named(jarTaskName, Jar.class);
+        project.getConfigurations().create(sourceSet.getName() + "KjarElements", config -> {
+            config.setDescription("The Kie JAR of the " + sourceSet.getName() + " source set.");
+            config.setCanBeConsumed(true);
+            config.setCanBeResolved(false);
+            config.attributes(attributes -> {
+                attributes.attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
+                attributes.attribute(Category.CATEGORY_ATTRIBUTE, project.getObjects().named(Category.class, Category.LIBRARY));
+                attributes.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE,
+                        project.getObjects().named(LibraryElements.class, KJAR_LIBRARY_ELEMENTS));
+            });
+            config.getOutgoing().capability(project.provider(() -> ProjectPomModel.toCoordinates(project, artifactId)));
+            config.getOutgoing().artifact(getKjarFile(compileDrools, jar), artifact -> artifact.builtBy(getKjarTasks(compileDrools, jar)));
+        });
+    }
+
+    /**
+     * Returns the Kie JAR assembled either by the given jar task or, with {@code directArchive}, by the
+     * given {@link CompileDrools} task.
+     */
+    private static Provider<RegularFile> getKjarFile(TaskProvider<CompileDrools> compileDrools, TaskProvider<Jar> jar) {
+        return compileDrools.flatMap(task -> task.getDirectArchive().get() ? task.getArchiveFile() : jar.flatMap(Jar::getArchiveFile));
+    }
+
+    /**
+     * Returns the tasks building the {@link #getKjarFile(TaskProvider, TaskProvider) Kie JAR}.
+     */
+    private static Callable<List<TaskProvider<?>>> getKjarTasks(TaskProvider<CompileDrools> compileDrools, TaskProvider<Jar> jar) {
+        return () -> compileDrools.get().getDirectArchive().get() ? List.of(compileDrools) : List.of(jar, compileDrools);
+    }
+
+    private static Provider<Integer> getCacheRetentionDays(Project project) {
+        return project.getProviders().gradleProperty(CACHE_RETENTION_DAYS_PROPERTY).map(Integer::valueOf).orElse(30);
+    }
+
+    private static String toKebabCase(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1-$2").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Publishes the CDS archive of the Kie JAR as an optional variant of the {@code java} component,
+     * next to the Kie JAR with the {@code cds} classifier.
+     */
+    private static void configureKieCdsVariant(Project project) {
+        final TaskProvider<GenerateKieCds> generateKieCds = project.getTasks().named(GENERATE_KIE_CDS_TASK_NAME, GenerateKieCds.class);
+        final Configuration kieCdsElements = project.getConfigurations().create(KIE_CDS_ELEMENTS_CONFIGURATION_NAME, config -> {
+            config.setDescription("The CDS archive of the Kie JAR.");
+            config.setCanBeConsumed(true);
+            config.setCanBeResolved(false);
+            config.attributes(attributes -> {
+                attributes.attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
+                attributes.attribute(Category.CATEGORY_ATTRIBUTE, project.getObjects().named(Category.class, KIE_CDS_CATEGORY));
+            });
+            config.getOutgoing().artifact(generateKieCds.flatMap(GenerateKieCds::getArchiveFile), artifact -> {
+                artifact.setClassifier("cds");
+                artifact.setExtension("jsa");
+                artifact.setType("jsa");
+                artifact.builtBy(generateKieCds);
+            });
         });
+        ((AdhocComponentWithVariants) project.getComponents().getByName("java"))
+                .addVariantsFromConfiguration(kieCdsElements, details -> details.mapToOptional());
+    }
+
+    /**
+     * Publishes the Kie JAR as a secondary variant of the {@code apiElements} configuration, so that
+     * downstream Kie JAR projects can select it.
+     */
+    private static void configureKjarVariant(Project project) {
+        final TaskProvider<Jar> jar = project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class);
+        final TaskProvider<CompileDrools> compileDrools = project.getTasks().named(COMPILE_DROOLS_TASK_NAME, CompileDrools.class);
+        project.getConfigurations().named(JavaPlugin.API_ELEMENTS_CONFIGURATION_NAME, config -> config
+                .getOutgoing()
+                .getVariants()
+                .create(KJAR_LIBRARY_ELEMENTS, variant -> {
+                    variant.attributes(attributes -> attributes.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE,
+                            project.getObjects().named(LibraryElements.class, KJAR_LIBRARY_ELEMENTS)));
+                    variant.artifact(getKjarFile(compileDrools, jar), artifact -> artifact.builtBy(getKjarTasks(compileDrools, jar)));
+                }));
+    }
+
+    /**
+     * Returns the Kie JARs of the projects on the compile classpath that apply this plugin.
+     */
+    private static FileCollection getUpstreamKjars(Project project, SourceSet sourceSet) {
+        return project.getConfigurations()
+                .getByName(sourceSet.getCompileClasspathConfigurationName())
+                .getIncoming()
+                .artifactView(view -> {
+                    view.lenient(true);
+                    view.componentFilter(ProjectComponentIdentifier.class::isInstance);
+                    view.attributes(attributes -> attributes.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE,
+                            project.getObjects().named(LibraryElements.class, KJAR_LIBRARY_ELEMENTS)));
+                })
+                .getFiles();
+    }
+
+    private static SourceSet getMainSourceSet(Project project) {
+        return project
+                .getExtensions()
+                .getByType(JavaPluginExtension.class)
+                .getSourceSets()
+                .getByName(SourceSet.MAIN_SOURCE_SET_NAME);
     }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.kevinwimmer.gradle.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieModule;
+import org.kie.api.builder.ReleaseId;
+
+import io.github.kevinwimmer.kie.classpath.ClasspathIndex;
+import io.github.kevinwimmer.kie.classpath.IndexedClassLoader;
+import io.github.kevinwimmer.kie.util.CacheCleanup;
+
+/**
+ * A build service that keeps the Drools compiler warm across builds run by the same Gradle daemon.
+ * <p>
+ *   Class loaders over a project's compile classpath are cached by a {@linkplain ClasspathIndex#fingerprint
+ *   fingerprint} of the classpath, so that repeat builds neither index nor reload unchanged classpaths.
+ *   With a class loader, a build reuses the fact classes it has loaded and the class files the Java
+ *   dialect compiler has read through it. The cache is bounded by {@link Parameters#getMaxClassLoaders()};
+ *   the least recently used class loaders that are not in use are evicted and closed.
+ * </p>
+ * <p>
+ *   The {@code KieBuilder} of a build and the {@code ProjectClassLoader} it creates are not cached: the
+ *   latter defines the classes generated from the rules, which a later build generates anew. Drools itself
+ *   stays loaded and JIT-compiled between builds only because Gradle reuses the plugin's class loader.
+ * </p>
+ * <p>
+ *   Each class loader consults a {@link ClasspathIndex} of its classpath, so that lookups of classes
+ *   that are not on the classpath fail without probing every JAR. The indexes of JARs are cached in
+ *   {@link Parameters#getClasspathIndexDirectory()} by checksum, and deleted once they were not used for
+ *   {@link Parameters#getClasspathIndexRetentionDays()} days.
+ * </p>
+ * <p>
+ *   The Kie repository of the shared {@link KieServices} instance is global to the daemon, so tasks
+ *   running concurrently (e.g. with {@code --parallel}) may need the same KieModule, such as an upstream
+ *   Kie JAR, at the same time. KieModules are therefore added to it through
+ *   {@link #acquireKieModule(File)}, which counts the registrations of each release ID, and are only
+ *   removed once the last one has been handed back.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class DroolsCompilerService implements BuildService<DroolsCompilerService.Parameters>, AutoCloseable {
+
+    public static final String NAME = "droolsCompiler";
+
+    private static final Logger LOGGER = Logging.getLogger(DroolsCompilerService.class);
+
+    private static final Map<String, IndexedClassLoader> CLASS_LOADERS = new LinkedHashMap<>(16, 0.75f, true);
+    private static final Map<ClassLoader, Integer> LEASES = new HashMap<>();
+    private static final Map<ReleaseId, Integer> KIE_MODULE_LEASES = new HashMap<>();
+
+    public interface Parameters extends BuildServiceParameters {
+
+        /**
+         * The maximum number of project class loaders kept between builds.
+         */
+        Property<Integer> getMaxClassLoaders();
+
+        /**
+         * The directory in which the class names of classpath JARs are cached, keyed by JAR checksum.
+         */
+        DirectoryProperty getClasspathIndexDirectory();
+
+        /**
+         * The number of days after which unused entries of the classpath index directory are deleted.
+         */
+        Property<Integer> getClasspathIndexRetentionDays();
+    }
+
+    /**
+     * Returns the {@link KieServices} singleton, whose Kie repository is shared by all builds.
+     */
+    public KieServices getKieServices() {
+        return KieServices.Factory.get();
+    }
+
+    /**
+     * Returns a class loader over the given classpath, reusing a cached one if the classpath has not
+     * changed. The class loader must be handed back through {@link #releaseClassLoader(ClassLoader)}.
+     */
+    public ClassLoader acquireClassLoader(Collection<File> classpath) {
+        String fingerprint = ClasspathIndex.fingerprint(classpath);
+        synchronized (CLASS_LOADERS) {
+            IndexedClassLoader classLoader = CLASS_LOADERS.get(fingerprint);
+            if (classLoader == null) {
+                LOGGER.info("Creating compiler class loader for classpath {}.", fingerprint);
+                File indexDir = getParameters().getClasspathIndexDirectory().get().getAsFile();
+                int retentionDays = getParameters().getClasspathIndexRetentionDays().get();
+                int deleted = CacheCleanup.deleteUnusedEntries(indexDir.toPath(), Duration.ofDays(retentionDays));
+                if (deleted > 0) {
+                    LOGGER.info("Deleted {} classpath index cache entries not used for {} days.", deleted, retentionDays);
+                }
+                ClasspathIndex index = ClasspathIndex.create(classpath, indexDir);
+                LOGGER.info("Indexed {} classes on the classpath ({} JARs indexed, {} reused from the cache).",
+                        index.size(), index.getIndexedJars(), index.getReusedJars());
+                classLoader = new IndexedClassLoader(classpath.stream().map(this::urlOf).toArray(URL[]::new),
+                        getClass().getClassLoader(), index);
+                CLASS_LOADERS.put(fingerprint, classLoader);
+            } else {
+                LOGGER.info("Reusing compiler class loader for classpath {}.", fingerprint);
+            }
+            LEASES.merge(classLoader, 1, Integer::sum);
+            evict();
+            return classLoader;
+        }
+    }
+
+    public void releaseClassLoader(ClassLoader classLoader) {
+        synchronized (CLASS_LOADERS) {
+            LEASES.computeIfPresent(classLoader, (loader, leases) -> leases > 1 ? leases - 1 : null);
+            evict();
+        }
+    }
+
+    /**
+     * Adds the given Kie JAR to the Kie repository. The KieModule must be handed back through
+     * {@link #releaseKieModule(ReleaseId)}.
+     *
+     * @return the KieModule added
+     */
+    public KieModule acquireKieModule(File kjar) {
+        KieServices ks = getKieServices();
+        synchronized (KIE_MODULE_LEASES) {
+            KieModule kModule = ks.getRepository().addKieModule(ks.getResources().newFileSystemResource(kjar));
+            KIE_MODULE_LEASES.merge(kModule.getReleaseId(), 1, Integer::sum);
+            return kModule;
+        }
+    }
+
+    /**
+     * Adds the given KieModule to the Kie repository. The KieModule must be handed back through
+     * {@link #releaseKieModule(ReleaseId)}.
+     */
+    public void acquireKieModule(KieModule kModule) {
+        synchronized (KIE_MODULE_LEASES) {
+            getKieServices().getRepository().addKieModule(kModule);
+            KIE_MODULE_LEASES.merge(kModule.getReleaseId(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Hands back a KieModule acquired through {@link #acquireKieModule(File)}, removing it from the Kie
+     * repository unless it is still acquired by another task.
+     */
+    public void releaseKieModule(ReleaseId releaseId) {
+        synchronized (KIE_MODULE_LEASES) {
+            if (KIE_MODULE_LEASES.computeIfPresent(releaseId, (id, leases) -> leases > 1 ? leases - 1 : null) == null) {
+                getKieServices().getRepository().removeKieModule(releaseId);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (CLASS_LOADERS) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        int excess = CLASS_LOADERS.size() - getParameters().getMaxClassLoaders().get();
+        Iterator<IndexedClassLoader> iterator = CLASS_LOADERS.values().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            IndexedClassLoader classLoader = iterator.next();
+            if (!LEASES.containsKey(classLoader)) {
+                iterator.remove();
+                excess--;
+                try {
+                    classLoader.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to close compiler class loader.", e);
+                }
+            }
+        }
+    }
+
+    private URL urlOf(File file) {
+        try {
+            return file.toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.tasks;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerExecutor;
+
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+import io.github.kevinwimmer.gradle.workers.AnalyzeReteAction;
+import io.github.kevinwimmer.kie.analysis.ReteAnalyzer;
+
+/**
+ * Builds each KieBase of the Kie JAR and analyzes its Rete network (see {@link ReteAnalyzer}): node
+ * counts by kind, node sharing, the join depth of each rule, and warnings about cross-product joins,
+ * unindexed joins and {@code from}/{@code accumulate} hot spots. The analysis is written to the
+ * {@link #getReportDirectory() report directory}, and the task fails if any of the configured
+ * thresholds is exceeded.
+ *
+ * @author Kevin Wimmer
+ */
+@CacheableTask
+public abstract class AnalyzeRete extends DefaultTask {
+
+    public static final String JSON_REPORT_FILE_NAME = "rete.json";
+    public static final String TEXT_REPORT_FILE_NAME = "rete.txt";
+
+    /**
+     * The Kie JAR to analyze.
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getKjarFile();
+
+    /**
+     * The runtime classpath of the rules, excluding the Kie JAR.
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * The maximum join depth of any rule.
+     */
+    @Input
+    @Optional
+    public abstract Property<Integer> getMaxJoinDepth();
+
+    /**
+     * The maximum number of cross-product joins.
+     */
+    @Input
+    @Optional
+    public abstract Property<Integer> getMaxCrossProducts();
+
+    /**
+     * The maximum number of unindexed joins.
+     */
+    @Input
+    @Optional
+    public abstract Property<Integer> getMaxUnindexedJoins();
+
+    /**
+     * The maximum number of {@code from}/{@code accumulate} hot spots.
+     */
+    @Input
+    @Optional
+    public abstract Property<Integer> getMaxHotSpots();
+
+    /**
+     * The directory to which {@value #JSON_REPORT_FILE_NAME} and {@value #TEXT_REPORT_FILE_NAME} are written.
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getReportDirectory();
+
+    @Internal
+    public abstract Property<DroolsCompilerService> getCompilerService();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @TaskAction
+    public void analyzeRete() {
+        getWorkerExecutor().noIsolation().submit(AnalyzeReteAction.class, parameters -> {
+            parameters.getKjarFile().set(getKjarFile());
+            parameters.getClasspath().from(getClasspath());
+            parameters.getMaxJoinDepth().set(getMaxJoinDepth());
+            parameters.getMaxCrossProducts().set(getMaxCrossProducts());
+            parameters.getMaxUnindexedJoins().set(getMaxUnindexedJoins());
+            parameters.getMaxHotSpots().set(getMaxHotSpots());
+            parameters.getReportDirectory().set(getReportDirectory());
+            parameters.getCompilerService().set(getCompilerService());
+        });
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.tasks;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.NamedDomainObjectContainer;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.UntrackedTask;
+import org.gradle.api.tasks.options.Option;
+import org.gradle.workers.WorkerExecutor;
+
+import io.github.kevinwimmer.gradle.dsl.BenchmarkDataset;
+import io.github.kevinwimmer.gradle.workers.BenchmarkRulesAction;
+import io.github.kevinwimmer.kie.benchmark.FactDataset;
+import io.github.kevinwimmer.kie.benchmark.RuleBenchmark;
+
+/**
+ * Benchmarks the rules of the Kie JAR: the facts of all {@link #getDatasets() datasets} are inserted
+ * into new sessions and all rules are fired, measuring the throughput in facts per second, the latency
+ * percentiles of {@code fireAllRules} and the bytes allocated per fire (see {@link RuleBenchmark}).
+ * <p>
+ *   The results are compared with the {@link #getBaselineFile() baseline}, and the task fails if any of
+ *   them regressed by more than {@link #getMaxRegressionPercent() maxRegressionPercent}. Run the task
+ *   with {@code --update-baseline} to record the current results as the baseline. The benchmark runs in
+ *   a separate worker process, so that its measurements are not disturbed by the Gradle daemon.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+@UntrackedTask(because = "Benchmark results depend on the load of the machine")
+public abstract class BenchmarkRules extends DefaultTask {
+
+    /**
+     * The Kie JAR to benchmark.
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getKjarFile();
+
+    /**
+     * The runtime classpath of the rules, excluding the Kie JAR.
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * The sets of facts inserted into each session.
+     */
+    @Internal
+    public abstract NamedDomainObjectContainer<BenchmarkDataset> getDatasets();
+
+    /**
+     * The name of the KieSession to benchmark. Defaults to the default KieSession.
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getKieSession();
+
+    /**
+     * The number of iterations run before measuring. Defaults to {@code 5}.
+     */
+    @Input
+    public abstract Property<Integer> getWarmupIterations();
+
+    /**
+     * The number of measured iterations. Defaults to {@code 20}.
+     */
+    @Input
+    public abstract Property<Integer> getIterations();
+
+    /**
+     * The baseline results, in properties format, which are typically kept under version control.
+     */
+    @Internal
+    public abstract RegularFileProperty getBaselineFile();
+
+    /**
+     * The regression of any result, in percent of its baseline, above which the task fails. Defaults to
+     * {@code 10}.
+     */
+    @Input
+    public abstract Property<Double> getMaxRegressionPercent();
+
+    /**
+     * Whether to record the results as the new baseline instead of comparing them with it.
+     */
+    @Input
+    @Option(option = "update-baseline", description = "Records the results as the new baseline.")
+    public abstract Property<Boolean> getUpdateBaseline();
+
+    /**
+     * The file to which the results are written, as JSON.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getResultsFile();
+
+    /**
+     * The maximum heap size of the benchmark process, e.g. {@code 2g}.
+     */
+    @Internal
+    @Optional
+    public abstract Property<String> getMaxHeapSize();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @TaskAction
+    public void benchmarkRules() {
+        if (getDatasets().isEmpty()) {
+            throw new InvalidUserDataException("No benchmark datasets are declared for task " + getPath());
+        }
+        List<FactDataset> datasets = getDatasets().stream().map(this::toFactDataset).toList();
+        getWorkerExecutor().processIsolation(spec -> {
+            if (getMaxHeapSize().isPresent()) {
+                spec.forkOptions(options -> options.setMaxHeapSize(getMaxHeapSize().get()));
+            }
+        }).submit(BenchmarkRulesAction.class, parameters -> {
+            parameters.getKjarFile().set(getKjarFile());
+            parameters.getClasspath().from(getClasspath());
+            parameters.getDatasets().set(datasets);
+            parameters.getKieSession().set(getKieSession());
+            parameters.getWarmupIterations().set(getWarmupIterations());
+            parameters.getIterations().set(getIterations());
+            parameters.getBaselineFile().set(getBaselineFile());
+            parameters.getMaxRegressionPercent().set(getMaxRegressionPercent());
+            parameters.getUpdateBaseline().set(getUpdateBaseline());
+            parameters.getResultsFile().set(getResultsFile());
+        });
+    }
+
+    private FactDataset toFactDataset(BenchmarkDataset dataset) {
+        if (dataset.getFixture().isPresent() == dataset.getGenerator().isPresent()) {
+            throw new InvalidUserDataException("Benchmark dataset " + dataset.getName() + " must declare either a fixture or a generator");
+        }
+        if (dataset.getFixture().isPresent() && !dataset.getFactType().isPresent()) {
+            throw new InvalidUserDataException("Benchmark dataset " + dataset.getName() + " must declare the factType of its fixture");
+        }
+        return new FactDataset(dataset.getName(), dataset.getFactType().getOrNull(),
+                dataset.getFixture().isPresent() ? dataset.getFixture().get().getAsFile() : null,
+                dataset.getGenerator().getOrNull(), dataset.getCount().getOrElse(1));
+    }
+}
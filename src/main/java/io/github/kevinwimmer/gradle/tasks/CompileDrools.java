@@ -15,169 +15,324 @@
 
 package io.github.kevinwimmer.gradle.tasks;
 
-import static org.gradle.api.plugins.JavaPlugin.COMPILE_CLASSPATH_CONFIGURATION_NAME;
-import static org.gradle.api.tasks.SourceSet.MAIN_SOURCE_SET_NAME;
-
-import java.io.File;
-import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-
-import org.drools.compiler.compiler.io.memory.MemoryFile;
-import org.drools.compiler.compiler.io.memory.MemoryFileSystem;
-import org.drools.compiler.kie.builder.impl.CompilationCacheProvider;
-import org.drools.compiler.kie.builder.impl.DrlProject;
-import org.drools.compiler.kie.builder.impl.InternalKieModule;
-import org.drools.compiler.kie.builder.impl.KieBuilderImpl;
-import org.drools.compiler.kie.builder.impl.MemoryKieModule;
-import org.drools.compiler.kie.builder.impl.ResultsImpl;
+import java.util.Map;
+
+import javax.inject.Inject;
+
 import org.gradle.api.DefaultTask;
-import org.gradle.api.GradleException;
-import org.gradle.api.Project;
-import org.gradle.api.UncheckedIOException;
-import org.gradle.api.plugins.JavaPlugin;
-import org.gradle.api.plugins.JavaPluginExtension;
-import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
-import org.kie.api.KieServices;
-import org.kie.api.builder.Message;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
-import io.github.kevinwimmer.kie.resources.DiskResourceStore;
-import io.github.kevinwimmer.maven.pom.ProjectPomModel;
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+import io.github.kevinwimmer.gradle.workers.CompileDroolsAction;
+import io.github.kevinwimmer.kie.builder.CompileReport;
+import io.github.kevinwimmer.kie.builder.KjarWriter;
+import io.github.kevinwimmer.kie.runtime.KieBaseSnapshots;
 
 /**
  * Builds a KieModule from the project source files.
  * <p>
- *   This class is largely derived from the
- *   <a href="https://github.com/kiegroup/droolsjbpm-integration/tree/main/kie-maven-plugin">Kie Maven Plugin</a>
- *   project.
+ *   The Drools compiler runs through the Gradle Worker API (see {@link CompileDroolsAction}), so that
+ *   independent Kie JAR projects can be compiled in parallel. By default it runs within the Gradle daemon
+ *   and keeps its class loaders warm across builds; it can also run in an isolated class loader or in a
+ *   separate worker process.
  * </p>
  *
  * @author Kevin Wimmer
  */
-public class CompileDrools extends DefaultTask {
-
-    @InputDirectory
-    public File getInputDirectory() {
-        return getProject()
-                .getExtensions()
-                .getByType(JavaPluginExtension.class)
-                .getSourceSets()
-                .getByName(MAIN_SOURCE_SET_NAME)
-                .getResources()
-                .getSrcDirs()
-                .iterator()
-                .next();
-    }
+@CacheableTask
+public abstract class CompileDrools extends DefaultTask {
+
+    public static final String ISOLATION_NONE = "none";
+    public static final String ISOLATION_CLASSLOADER = "classloader";
+    public static final String ISOLATION_PROCESS = "process";
+
+    /**
+     * The patterns of the resource files read by the Drools compiler.
+     */
+    public static final List<String> DROOLS_SOURCE_PATTERNS = List.of(
+            "**/*.drl", "**/*.gdrl", "**/*.rdrl", "**/*.dsl", "**/*.dslr", "**/*.rdslr",
+            "**/*.xls", "**/*.xlsx", "**/*.csv", "**/*.xls.properties", "**/*.xlsx.properties", "**/*.csv.properties");
+
+    /**
+     * The resource directories containing the Drools source files, typically all resource directories
+     * of a source set.
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getInputDirectories();
+
+    /**
+     * The Drools source files, located beneath the {@link #getInputDirectories() input directories}. Each
+     * file is compiled at its path relative to the input directory containing it.
+     */
+    @Incremental
+    @InputFiles
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSources();
+
+    /**
+     * The classpath against which the Drools source files are compiled. Only the ABI of its classes
+     * (their signatures, non-private fields, constants and annotations) is tracked, so changes to method
+     * bodies or private members do not cause the rules to be compiled again.
+     */
+    @CompileClasspath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * The Kie JARs of upstream Kie JAR projects this project depends on. They are registered with the
+     * Kie repository, so that the KieModule links against their compiled classes, compilation cache and
+     * {@code kmodule.info} instead of rebuilding their rules.
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getUpstreamKjars();
+
+    /**
+     * The directory to which the generated class files and the {@code META-INF} metadata are written.
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    /**
+     * The coordinates of the KieModule, in {@code groupId:artifactId:version} form.
+     */
+    @Input
+    public abstract Property<String> getReleaseId();
+
+    /**
+     * The coordinates of the parent project, if any.
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getParentReleaseId();
+
+    /**
+     * The coordinates of the declared dependencies, keyed by Maven scope.
+     */
+    @Input
+    public abstract MapProperty<String, List<String>> getDependencies();
+
+    /**
+     * The content of the {@code kmodule.xml} file the KieModule is built from, as rendered from the
+     * {@code kjar} extension. It replaces any {@code META-INF/kmodule.xml} among the source files.
+     */
+    @Input
+    public abstract Property<String> getKmoduleXml();
+
+    /**
+     * The maximum number of independent KieBases (those not related through {@code includes}), or of
+     * package shards, compiled concurrently during a full build. Defaults to the number of available
+     * processors.
+     */
+    @Internal
+    public abstract Property<Integer> getMaxParallelKieBases();
+
+    /**
+     * The number of rules above which a single rule package is split into shards of at most that many
+     * rules, which are compiled concurrently and merged back into a single package before the
+     * compilation cache ({@code kbase.cache}) is written. Sharded builds omit KieBase snapshots. Defaults
+     * to {@code 0}, which disables sharding.
+     */
+    @Input
+    public abstract Property<Integer> getMaxRulesPerShard();
+
+    /**
+     * The directory in which the DRL converted from spreadsheet decision tables is cached, keyed by a
+     * hash of each workbook and its configuration, so that unchanged workbooks are not parsed again.
+     * Defaults to {@code caches/kjar/decision-tables} within the Gradle user home, shared by all builds.
+     */
+    @Internal
+    public abstract DirectoryProperty getDecisionTableCacheDirectory();
+
+    /**
+     * The number of days after which unused entries of the {@link #getDecisionTableCacheDirectory()
+     * decision table cache} are deleted. Defaults to the {@code kjar.cacheRetentionDays} Gradle property,
+     * or {@code 30}.
+     */
+    @Internal
+    public abstract Property<Integer> getDecisionTableCacheRetentionDays();
+
+    /**
+     * Whether to build the executable model (as the Kie Maven Plugin does with {@code generateModel}) rather
+     * than a DRL based KieModule. The generated rule model classes are compiled into the Kie JAR, so that
+     * KieBases can be created at runtime without parsing DRL or compiling constraints. Defaults to
+     * {@code false}.
+     */
+    @Input
+    public abstract Property<Boolean> getExecutableModel();
+
+    /**
+     * Whether to fully build each KieBase at build time and package a serialized snapshot of it, which
+     * applications load with the loader class generated into the Kie JAR (see
+     * {@link KieBaseSnapshots#getLoaderClassName}) instead of building the KieBase from the Kie JAR.
+     * Snapshots are only generated by full builds of DRL based KieModules that are not sharded; the task
+     * warns when they are skipped. Defaults to {@code false}.
+     */
+    @Input
+    public abstract Property<Boolean> getKieBaseSnapshots();
 
+    /**
+     * Whether to recompile only the rule packages affected by changed DRL files, i.e. the packages
+     * containing them, the packages using these and the packages used by any of them. A full build is done
+     * instead when any of these packages also contains a decision table or another non-DRL resource.
+     * Defaults to {@code false}.
+     */
+    @Input
+    public abstract Property<Boolean> getIncremental();
+
+    /**
+     * Whether to assemble the Kie JAR directly from the built KieModule into the {@link #getArchiveFile()
+     * archive file}, instead of having the {@code jar} task read the generated class files back from the
+     * {@link #getOutputDirectory() output directory}. Downstream Kie JAR projects then consume the directly
+     * assembled Kie JAR. The {@code jar} task still builds its own archive, with its manifest and copy
+     * specs, which the directly assembled Kie JAR does not apply. The output directory is still written,
+     * for use by IDEs and tests. Defaults to {@code false}.
+     */
+    @Input
+    public abstract Property<Boolean> getDirectArchive();
+
+    /**
+     * The Kie JAR assembled when {@link #getDirectArchive() directArchive} is enabled. Defaults to a file
+     * named after the archive of the {@code jar} task in {@code build/kjar}.
+     */
     @OutputFile
-    public File getOutputFile() {
-        return getProject()
-                .getTasksByName(JavaPlugin.JAR_TASK_NAME, false)
-                .iterator()
-                .next()
-                .getOutputs()
-                .getFiles()
-                .getSingleFile();
-    }
+    @Optional
+    public abstract RegularFileProperty getArchiveFile();
+
+    /**
+     * The directories (processed resources and compiled classes) whose files are added to the directly
+     * assembled Kie JAR. When only these change, the Kie JAR is reassembled without compiling the rules.
+     */
+    @Incremental
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getArchiveDirectories();
+
+    /**
+     * The compression level of the directly assembled Kie JAR: {@code 1} (fastest) to {@code 9} (smallest),
+     * {@value KjarWriter#STORED} to store entries uncompressed for faster class loading, or {@code -1}
+     * (the default) for the default level.
+     */
+    @Input
+    public abstract Property<Integer> getArchiveCompressionLevel();
+
+    /**
+     * The isolation mode of the Drools compiler: {@value #ISOLATION_NONE} (the default) compiles within the
+     * Gradle daemon, reusing the warm compiler and cached class loaders of the {@link #getCompilerService()
+     * compiler service}; {@value #ISOLATION_CLASSLOADER} compiles in an isolated class loader within the
+     * daemon; {@value #ISOLATION_PROCESS} compiles in a separate, reusable worker process.
+     */
+    @Internal
+    public abstract Property<String> getIsolation();
+
+    /**
+     * The maximum heap size of the worker process, e.g. {@code 4g}. Only applies to process isolation.
+     */
+    @Internal
+    @Optional
+    public abstract Property<String> getMaxHeapSize();
+
+    /**
+     * The directory to which the compile report is written: {@value CompileReport#JSON_REPORT_FILE_NAME}
+     * and {@value CompileReport#HTML_REPORT_FILE_NAME} hold the duration of each build phase, counts such
+     * as the number of rules, generated classes and bytes written, and the peak heap usage.
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getReportDirectory();
+
+    @LocalState
+    public abstract DirectoryProperty getStateDirectory();
+
+    @Internal
+    public abstract Property<DroolsCompilerService> getCompilerService();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
 
     @TaskAction
-    public void compileDrools() {
-        Project project = getProject();
-        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
-        Thread.currentThread().setContextClassLoader(createClassLoader(project));
-        try {
-            File sourceDir = getInputDirectory();
-            File outputDir = project
-                    .getExtensions()
-                    .getByType(JavaPluginExtension.class)
-                    .getSourceSets()
-                    .getByName(MAIN_SOURCE_SET_NAME)
-                    .getOutput()
-                    .getClassesDirs()
-                    .getSingleFile();
-
-            KieServices ks = KieServices.Factory.get();
-            KieBuilderImpl kieBuilder = (KieBuilderImpl) ks.newKieBuilder(project.getProjectDir());
-            kieBuilder.setPomModel(new ProjectPomModel(project));
-            kieBuilder.buildAll(DrlProject.SUPPLIER,
-                    s -> s.contains(sourceDir.getAbsolutePath()) || s.endsWith("pom.xml"));
-            InternalKieModule kModule = (InternalKieModule) kieBuilder.getKieModule();
-            ResultsImpl messages = (ResultsImpl) kieBuilder.getResults();
-
-            List<Message> errors = messages != null ? messages.filterMessages(Message.Level.ERROR) : Collections.emptyList();
-
-            CompilationCacheProvider.get().writeKieModuleMetaInfo(kModule, new DiskResourceStore(outputDir));
-
-            if (!errors.isEmpty()) {
-                for (Message error : errors) {
-                    getLogger().error(error.toString());
+    public void compileDrools(InputChanges inputChanges) {
+        // when only the archive directories changed, the Kie JAR is reassembled from the previous output
+        boolean incremental = inputChanges.isIncremental()
+                && (getIncremental().get() || !inputChanges.getFileChanges(getSources()).iterator().hasNext());
+        Map<String, ChangeType> changes = new LinkedHashMap<>();
+        if (incremental) {
+            for (FileChange change : inputChanges.getFileChanges(getSources())) {
+                if (change.getFileType() != FileType.DIRECTORY) {
+                    changes.put(change.getNormalizedPath(), change.getChangeType());
                 }
-                throw new GradleException("Build failed!");
-            } else {
-                writeClassFiles(kModule, outputDir);
             }
-        } finally {
-            Thread.currentThread().setContextClassLoader(contextClassLoader);
         }
-        getLogger().info("KieModule successfully built!");
-    }
 
-    private ClassLoader createClassLoader(Project project) {
-        Set<URL> urls = new HashSet<>();
-        project
-                .getConfigurations()
-                .getByName(COMPILE_CLASSPATH_CONFIGURATION_NAME)
-                .getResolvedConfiguration()
-                .getFiles()
-                .forEach(dependency -> urls.add(urlOf(dependency)));
-        project
-                .getExtensions()
-                .getByType(JavaPluginExtension.class)
-                .getSourceSets()
-                .getByName(MAIN_SOURCE_SET_NAME)
-                .getOutput()
-                .getClassesDirs()
-                .forEach(dir -> urls.add(urlOf(dir)));
-        return URLClassLoader.newInstance(urls.toArray(new URL[0]), getClass().getClassLoader());
-    }
-
-    private URL urlOf(File file) {
-        try {
-            return file.toURI().toURL();
-        } catch (MalformedURLException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
-    private void writeClassFiles(InternalKieModule kModule, File outputDir) {
-        MemoryFileSystem mfs = ((MemoryKieModule) kModule).getMemoryFileSystem();
-        kModule.getFileNames()
-                .stream()
-                .filter(name -> name.endsWith(".class")
-                        && !name.contains("build/classes") && !name.contains("build\\classes"))
-                .forEach(fileName -> saveFile(mfs, fileName, outputDir));
+        String isolation = getIsolation().get();
+        createWorkQueue(isolation).submit(CompileDroolsAction.class, parameters -> {
+            if (ISOLATION_NONE.equals(isolation)) {
+                parameters.getCompilerService().set(getCompilerService());
+            }
+            parameters.getSourceDirectories().from(getInputDirectories());
+            parameters.getSources().from(getSources());
+            parameters.getClasspath().from(getClasspath());
+            parameters.getUpstreamKjars().from(getUpstreamKjars());
+            parameters.getOutputDirectory().set(getOutputDirectory());
+            parameters.getStateDirectory().set(getStateDirectory());
+            parameters.getTemporaryDirectory().set(getTemporaryDir());
+            parameters.getReleaseId().set(getReleaseId());
+            parameters.getParentReleaseId().set(getParentReleaseId());
+            parameters.getDependencies().set(getDependencies());
+            parameters.getKmoduleXml().set(getKmoduleXml());
+            parameters.getMaxParallelKieBases().set(getMaxParallelKieBases());
+            parameters.getMaxRulesPerShard().set(getMaxRulesPerShard());
+            parameters.getDecisionTableCacheDirectory().set(getDecisionTableCacheDirectory());
+            parameters.getDecisionTableCacheRetentionDays().set(getDecisionTableCacheRetentionDays());
+            parameters.getExecutableModel().set(getExecutableModel());
+            parameters.getKieBaseSnapshots().set(getKieBaseSnapshots());
+            parameters.getIncremental().set(incremental);
+            parameters.getChanges().set(changes);
+            parameters.getArchiveFile().set(getArchiveFile());
+            parameters.getArchiveDirectories().from(getArchiveDirectories());
+            parameters.getArchiveCompressionLevel().set(getArchiveCompressionLevel());
+            parameters.getReportDirectory().set(getReportDirectory());
+        });
     }
 
-    private void saveFile(MemoryFileSystem mfs, String fileName, File outputDir) {
-        MemoryFile memFile = (MemoryFile) mfs.getFile(fileName);
-        final Path path = Paths.get(outputDir.getPath(), memFile.getPath().asString());
-        try {
-            Files.deleteIfExists(path);
-            Files.createDirectories(path);
-            Files.copy(memFile.getContents(), path, StandardCopyOption.REPLACE_EXISTING);
-        } catch (IOException e) {
-            throw new UncheckedIOException("Unable to write file: " + path, e);
+    private WorkQueue createWorkQueue(String isolation) {
+        if (ISOLATION_NONE.equals(isolation)) {
+            return getWorkerExecutor().noIsolation();
+        } else if (ISOLATION_PROCESS.equals(isolation)) {
+            return getWorkerExecutor().processIsolation(spec -> {
+                if (getMaxHeapSize().isPresent()) {
+                    spec.forkOptions(options -> options.setMaxHeapSize(getMaxHeapSize().get()));
+                }
+            });
+        } else if (ISOLATION_CLASSLOADER.equals(isolation)) {
+            return getWorkerExecutor().classLoaderIsolation();
         }
+        throw new InvalidUserDataException("Unsupported isolation mode: " + isolation);
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.tasks;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.UntrackedTask;
+import org.gradle.workers.WorkerExecutor;
+
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+import io.github.kevinwimmer.gradle.workers.DroolsDevAction;
+
+/**
+ * Runs a continuous development mode for rule authors. The KieModule is built in memory and a
+ * {@code KieContainer} is kept warm; whenever Drools source files change, they are recompiled
+ * incrementally and the container is updated to the new KieBase in place, typically within
+ * milliseconds. Rules are fired against fact files dropped into the {@link #getFactsDirectory() facts
+ * directory} (see {@link DroolsDevAction#FACTS_FILE_EXTENSION}), and the rules fired are logged and
+ * written next to each fact file. The task runs until the build is cancelled.
+ *
+ * @author Kevin Wimmer
+ */
+@UntrackedTask(because = "It runs until the build is cancelled")
+public abstract class DroolsDev extends DefaultTask {
+
+    /**
+     * The resource directories containing the Drools source files, typically all resource directories of
+     * a source set, which are watched for changes.
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getInputDirectories();
+
+    /**
+     * The classpath of the fact types and other classes referenced by the rules.
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * The directory watched for fact files.
+     */
+    @Internal
+    public abstract DirectoryProperty getFactsDirectory();
+
+    /**
+     * The coordinates of the KieModule, in {@code groupId:artifactId:version} form.
+     */
+    @Internal
+    public abstract Property<String> getReleaseId();
+
+    /**
+     * The content of the {@code kmodule.xml} file the KieModule is built from.
+     */
+    @Internal
+    public abstract Property<String> getKmoduleXml();
+
+    /**
+     * The name of the KieSession in which facts are fired. Defaults to the default KieSession.
+     */
+    @Internal
+    @Optional
+    public abstract Property<String> getKieSession();
+
+    @Internal
+    public abstract Property<DroolsCompilerService> getCompilerService();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @TaskAction
+    public void droolsDev() {
+        getWorkerExecutor().noIsolation().submit(DroolsDevAction.class, parameters -> {
+            parameters.getSourceDirectories().from(getInputDirectories());
+            parameters.getClasspath().from(getClasspath());
+            parameters.getFactsDirectory().set(getFactsDirectory());
+            parameters.getReleaseId().set(getReleaseId());
+            parameters.getKmoduleXml().set(getKmoduleXml());
+            parameters.getKieSession().set(getKieSession());
+            parameters.getCompilerService().set(getCompilerService());
+        });
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.ExecOperations;
+import org.gradle.work.DisableCachingByDefault;
+
+import io.github.kevinwimmer.kie.runtime.KieCdsTraining;
+
+/**
+ * Generates a Class Data Sharing (AppCDS) archive for applications using the Kie JAR, so that the JVM
+ * maps the classes of Drools and the classes generated for the rules from the archive at startup,
+ * instead of loading, parsing and verifying them one by one.
+ * <p>
+ *   A training run (see {@link KieCdsTraining}) loads the classes of the Kie JAR, creates its KieBases
+ *   and their sessions, and records the loaded classes in the {@link #getClassListFile() class list}.
+ *   The archive is then dumped from the class list. Applications use it with
+ *   {@code -XX:SharedArchiveFile}, and the JVM only maps the archived application classes if the
+ *   application's classpath starts with the Kie JAR followed by the {@link #getClasspath() classpath},
+ *   in this order. The archive can only be used by the same JVM build that generated it.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+@DisableCachingByDefault(because = "The archive records the absolute paths of the classpath it was dumped with")
+public abstract class GenerateKieCds extends DefaultTask {
+
+    /**
+     * The Kie JAR for which the archive is generated.
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getKjarFile();
+
+    /**
+     * The runtime classpath of applications using the Kie JAR, excluding the Kie JAR, which must
+     * contain the Drools runtime.
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * The JVM that runs the training run and generates the archive.
+     */
+    @Nested
+    public abstract Property<JavaLauncher> getJavaLauncher();
+
+    /**
+     * The classes loaded by the training run.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getClassListFile();
+
+    /**
+     * The CDS archive.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getArchiveFile();
+
+    @Inject
+    protected abstract ObjectFactory getObjects();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @TaskAction
+    public void generateKieCds() {
+        File kjar = getKjarFile().get().getAsFile();
+        File classList = getClassListFile().get().getAsFile();
+        File archive = getArchiveFile().get().getAsFile();
+        File java = getJavaLauncher().get().getExecutablePath().getAsFile();
+        FileCollection applicationClasspath = getObjects().fileCollection().from(kjar, getClasspath());
+
+        File rawClassList = new File(getTemporaryDir(), "classlist.raw");
+        getExecOperations().exec(spec -> {
+            spec.setExecutable(java);
+            spec.args("-Xshare:off", "-XX:DumpLoadedClassList=" + rawClassList.getAbsolutePath(), "-cp",
+                    applicationClasspath.plus(getObjects().fileCollection().from(getTrainingClasspath())).getAsPath(),
+                    KieCdsTraining.class.getName(), kjar.getAbsolutePath());
+        });
+        writeClassList(rawClassList, classList);
+
+        getExecOperations().exec(spec -> {
+            spec.setExecutable(java);
+            spec.args("-Xshare:dump", "-XX:SharedClassListFile=" + classList.getAbsolutePath(),
+                    "-XX:SharedArchiveFile=" + archive.getAbsolutePath(), "-cp", applicationClasspath.getAsPath());
+        });
+        getLogger().lifecycle("Generated CDS archive {} ({} KB). Run applications with -XX:SharedArchiveFile={} and a classpath starting with: {}",
+                archive.getName(), archive.length() / 1024, archive.getName(), applicationClasspath.getAsPath());
+    }
+
+    /**
+     * Copies the recorded class list, leaving out the training run itself, which is not part of the
+     * application's classpath.
+     */
+    private void writeClassList(File rawClassList, File classList) {
+        String trainingClass = KieCdsTraining.class.getName().replace('.', '/');
+        try {
+            List<String> classes = Files.readAllLines(rawClassList.toPath())
+                    .stream()
+                    .filter(line -> !line.contains(trainingClass))
+                    .collect(Collectors.toList());
+            Files.write(classList.toPath(), classes);
+            getLogger().info("Recorded {} classes during the training run.", classes.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write class list: " + classList, e);
+        }
+    }
+
+    /**
+     * Returns the location of the {@link KieCdsTraining} class, which is appended to the classpath of
+     * the training run.
+     */
+    private File getTrainingClasspath() {
+        try {
+            return new File(KieCdsTraining.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new GradleException("Unable to locate the CDS training class", e);
+        }
+    }
+}
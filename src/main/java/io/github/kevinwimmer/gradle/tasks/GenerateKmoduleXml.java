@@ -15,40 +15,37 @@
 
 package io.github.kevinwimmer.gradle.tasks;
 
-import static org.gradle.api.tasks.SourceSet.MAIN_SOURCE_SET_NAME;
-
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Project;
-import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.work.DisableCachingByDefault;
 
 @DisableCachingByDefault(because = "Not worth caching")
-public class GenerateKmoduleXml extends DefaultTask {
+public abstract class GenerateKmoduleXml extends DefaultTask {
 
-    @TaskAction
-    public void generatePomProperties() throws IOException {
-        try (FileOutputStream writer = new FileOutputStream(createDestination(getProject()))) {
-            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<kmodule xmlns=\"http://www.drools.org/xsd/kmodule\"/>".getBytes(StandardCharsets.UTF_8));
-        }
-    }
+    /**
+     * The content of the {@code kmodule.xml} file, as rendered from the {@code kjar} extension.
+     */
+    @Input
+    public abstract Property<String> getKmoduleXml();
 
-    private File createDestination(Project project) {
-        File dest = new File(
-                project
-                        .getExtensions()
-                        .getByType(JavaPluginExtension.class)
-                        .getSourceSets()
-                        .getByName(MAIN_SOURCE_SET_NAME)
-                        .getOutput()
-                        .getResourcesDir(),
-                        "META-INF/kmodule.xml");
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    @TaskAction
+    public void generateKmoduleXml() throws IOException {
+        File dest = getOutputFile().get().getAsFile();
         dest.getParentFile().mkdirs();
-        return dest;
+        try (FileOutputStream writer = new FileOutputStream(dest)) {
+            writer.write(getKmoduleXml().get().getBytes(StandardCharsets.UTF_8));
+        }
     }
 }
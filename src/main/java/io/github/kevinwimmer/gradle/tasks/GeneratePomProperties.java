@@ -15,49 +15,48 @@
 
 package io.github.kevinwimmer.gradle.tasks;
 
-import static org.gradle.api.tasks.SourceSet.MAIN_SOURCE_SET_NAME;
-
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Properties;
 
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Project;
-import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.work.DisableCachingByDefault;
 
 @DisableCachingByDefault(because = "Not worth caching")
-public class GeneratePomProperties extends DefaultTask {
+public abstract class GeneratePomProperties extends DefaultTask {
+
+    @Input
+    public abstract Property<String> getGroupId();
+
+    @Input
+    public abstract Property<String> getArtifactId();
+
+    @Input
+    public abstract Property<String> getVersion();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
 
     @TaskAction
     public void generatePomProperties() throws IOException {
-        Project project = getProject();
-        try (FileWriter writer = new FileWriter(createDestination(project))) {
-            createPomProperties(project).store(writer, "Generated by gradle-kie-plugin");
-        }
-    }
-
-    private File createDestination(Project project) {
-        File dest = new File(
-                project
-                        .getExtensions()
-                        .getByType(JavaPluginExtension.class)
-                        .getSourceSets()
-                        .getByName(MAIN_SOURCE_SET_NAME)
-                        .getOutput()
-                        .getResourcesDir(),
-                String.format("META-INF/maven/%s/%s/pom.properties", project.getGroup(), project.getName()));
+        File dest = getOutputFile().get().getAsFile();
         dest.getParentFile().mkdirs();
-        return dest;
+        try (FileWriter writer = new FileWriter(dest)) {
+            createPomProperties().store(writer, "Generated by gradle-kie-plugin");
+        }
     }
 
-    private Properties createPomProperties(Project project) {
+    private Properties createPomProperties() {
         Properties props = new Properties();
-        props.setProperty("artifactId", project.getName());
-        props.setProperty("groupId", project.getGroup().toString());
-        props.setProperty("version", project.getVersion().toString());
+        props.setProperty("artifactId", getArtifactId().get());
+        props.setProperty("groupId", getGroupId().get());
+        props.setProperty("version", getVersion().get());
         return props;
     }
 }
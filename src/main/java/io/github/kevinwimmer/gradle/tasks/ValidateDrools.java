@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.kevinwimmer.gradle.tasks;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerExecutor;
+
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+import io.github.kevinwimmer.gradle.workers.ValidateDroolsAction;
+import io.github.kevinwimmer.kie.builder.DrlValidator;
+
+/**
+ * Validates the Drools source files of a source set without building a KieModule: each DRL and DSLR file,
+ * and the DRL converted from each decision table, is parsed and the fact types and fields of its rules
+ * are resolved, in parallel, and all problems are reported with their file and line. No class files or
+ * KieModule metadata are generated, which makes this task much faster than {@link CompileDrools} for
+ * checking whether rules compile.
+ * <p>
+ *   See {@link DrlValidator} for the kinds of problems detected.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+@CacheableTask
+public abstract class ValidateDrools extends DefaultTask {
+
+    /**
+     * The resource directories containing the Drools source files, typically all resource directories of a
+     * source set.
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getInputDirectories();
+
+    /**
+     * The Drools source files, located beneath the {@link #getInputDirectories() input directories}. DSL
+     * files and the configuration of decision tables are only used to expand DSLR files and to convert
+     * decision tables.
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSources();
+
+    /**
+     * The classpath against which fact types are resolved. Only the ABI of its classes is tracked.
+     */
+    @CompileClasspath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * The file listing the problems found, one per line.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    /**
+     * The directory in which the DRL converted from spreadsheet decision tables is cached, shared with
+     * {@link CompileDrools#getDecisionTableCacheDirectory()}.
+     */
+    @Internal
+    public abstract DirectoryProperty getDecisionTableCacheDirectory();
+
+    /**
+     * The number of days after which unused entries of the decision table cache are deleted, shared with
+     * {@link CompileDrools#getDecisionTableCacheRetentionDays()}.
+     */
+    @Internal
+    public abstract Property<Integer> getDecisionTableCacheRetentionDays();
+
+    @Internal
+    public abstract Property<DroolsCompilerService> getCompilerService();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @TaskAction
+    public void validateDrools() {
+        getWorkerExecutor().noIsolation().submit(ValidateDroolsAction.class, parameters -> {
+            parameters.getSourceDirectories().from(getInputDirectories());
+            parameters.getSources().from(getSources());
+            parameters.getClasspath().from(getClasspath());
+            parameters.getReportFile().set(getReportFile());
+            parameters.getDecisionTableCacheDirectory().set(getDecisionTableCacheDirectory());
+            parameters.getDecisionTableCacheRetentionDays().set(getDecisionTableCacheRetentionDays());
+            parameters.getCompilerService().set(getCompilerService());
+        });
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.workers;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieModule;
+import org.kie.api.runtime.KieContainer;
+
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+import io.github.kevinwimmer.gradle.tasks.AnalyzeRete;
+import io.github.kevinwimmer.kie.analysis.ReteAnalyzer;
+import io.github.kevinwimmer.kie.util.Json;
+
+/**
+ * Analyzes the Rete networks of the KieBases of a Kie JAR on behalf of the {@code AnalyzeRete} task.
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class AnalyzeReteAction implements WorkAction<AnalyzeReteParameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(AnalyzeReteAction.class);
+
+    @Override
+    public void execute() {
+        AnalyzeReteParameters parameters = getParameters();
+        DroolsCompilerService compilerService = parameters.getCompilerService().get();
+        ClassLoader projectClassLoader = compilerService.acquireClassLoader(parameters.getClasspath().getFiles());
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        File kjar = parameters.getKjarFile().get().getAsFile();
+        KieServices ks = compilerService.getKieServices();
+        List<ReteAnalyzer.Analysis> analyses = new ArrayList<>();
+        try (URLClassLoader classLoader = URLClassLoader.newInstance(new URL[] { urlOf(kjar) }, projectClassLoader)) {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            KieModule kModule = compilerService.acquireKieModule(kjar);
+            KieContainer kieContainer = ks.newKieContainer(kModule.getReleaseId(), classLoader);
+            try {
+                ReteAnalyzer analyzer = new ReteAnalyzer();
+                for (String kieBaseName : kieContainer.getKieBaseNames()) {
+                    analyses.add(analyzer.analyze(kieBaseName, kieContainer.getKieBase(kieBaseName)));
+                }
+            } finally {
+                kieContainer.dispose();
+                compilerService.releaseKieModule(kModule.getReleaseId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close the Kie JAR class loader", e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            compilerService.releaseClassLoader(projectClassLoader);
+        }
+
+        File reportDir = parameters.getReportDirectory().get().getAsFile();
+        writeReports(analyses, reportDir);
+        List<String> violations = new ArrayList<>();
+        for (ReteAnalyzer.Analysis analysis : analyses) {
+            LOGGER.lifecycle("KieBase {}: {} nodes ({} shared), sharing ratio {}, max join depth {}, {} warning(s).",
+                    analysis.kieBase(), analysis.nodes(), analysis.sharedNodes(), String.format("%.2f", analysis.sharingRatio()),
+                    analysis.getMaxJoinDepth(), analysis.warnings().size());
+            analysis.warnings().forEach(warning -> LOGGER.warn(warning.toString()));
+            checkThreshold(violations, analysis, "join depth", analysis.getMaxJoinDepth(), parameters.getMaxJoinDepth());
+            checkThreshold(violations, analysis, "cross-product joins", analysis.countWarnings(ReteAnalyzer.CROSS_PRODUCT),
+                    parameters.getMaxCrossProducts());
+            checkThreshold(violations, analysis, "unindexed joins", analysis.countWarnings(ReteAnalyzer.UNINDEXED_JOIN),
+                    parameters.getMaxUnindexedJoins());
+            checkThreshold(violations, analysis, "hot spots", analysis.countWarnings(ReteAnalyzer.HOT_SPOT),
+                    parameters.getMaxHotSpots());
+        }
+        if (!violations.isEmpty()) {
+            violations.forEach(LOGGER::error);
+            throw new GradleException(String.format("Rete analysis exceeded %d threshold(s), see %s",
+                    violations.size(), new File(reportDir, AnalyzeRete.TEXT_REPORT_FILE_NAME)));
+        }
+    }
+
+    private void checkThreshold(List<String> violations, ReteAnalyzer.Analysis analysis, String name, long value,
+            Property<Integer> threshold) {
+        if (threshold.isPresent() && value > threshold.get()) {
+            violations.add(String.format("KieBase %s has %d %s, more than the maximum of %d", analysis.kieBase(), value, name,
+                    threshold.get()));
+        }
+    }
+
+    private void writeReports(List<ReteAnalyzer.Analysis> analyses, File dir) {
+        List<Map<String, Object>> json = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (ReteAnalyzer.Analysis analysis : analyses) {
+            Map<String, Object> kieBase = new LinkedHashMap<>();
+            kieBase.put("kieBase", analysis.kieBase());
+            kieBase.put("nodes", analysis.nodes());
+            kieBase.put("sharedNodes", analysis.sharedNodes());
+            kieBase.put("sharingRatio", Math.round(analysis.sharingRatio() * 1000) / 1000.0);
+            kieBase.put("nodeCounts", analysis.nodeCounts());
+            kieBase.put("joinDepths", analysis.joinDepths());
+            List<Map<String, Object>> warnings = new ArrayList<>();
+            for (ReteAnalyzer.Warning warning : analysis.warnings()) {
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("kind", warning.kind());
+                values.put("rule", warning.rule());
+                values.put("node", warning.nodeId());
+                values.put("message", warning.message());
+                warnings.add(values);
+            }
+            kieBase.put("warnings", warnings);
+            json.add(kieBase);
+
+            text.append("KieBase ").append(analysis.kieBase()).append('\n');
+            text.append(String.format("  %d nodes, %d shared, sharing ratio %.2f%n", analysis.nodes(), analysis.sharedNodes(),
+                    analysis.sharingRatio()));
+            analysis.nodeCounts().forEach((kind, count) -> text.append("  ").append(kind).append(": ").append(count).append('\n'));
+            text.append("  Join depth by rule:\n");
+            analysis.joinDepths().forEach((rule, depth) -> text.append("    ").append(rule).append(": ").append(depth).append('\n'));
+            text.append("  Warnings:").append(analysis.warnings().isEmpty() ? " none\n" : "\n");
+            analysis.warnings().forEach(warning -> text.append("    ").append(warning).append('\n'));
+        }
+        try {
+            Files.createDirectories(dir.toPath());
+            Files.writeString(new File(dir, AnalyzeRete.JSON_REPORT_FILE_NAME).toPath(), Json.write(json));
+            Files.writeString(new File(dir, AnalyzeRete.TEXT_REPORT_FILE_NAME).toPath(), text);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write report to: " + dir, e);
+        }
+    }
+
+    private URL urlOf(File file) {
+        try {
+            return file.toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.workers;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+
+/**
+ * The parameters of an {@link AnalyzeReteAction}.
+ *
+ * @author Kevin Wimmer
+ */
+public interface AnalyzeReteParameters extends WorkParameters {
+
+    RegularFileProperty getKjarFile();
+
+    ConfigurableFileCollection getClasspath();
+
+    Property<Integer> getMaxJoinDepth();
+
+    Property<Integer> getMaxCrossProducts();
+
+    Property<Integer> getMaxUnindexedJoins();
+
+    Property<Integer> getMaxHotSpots();
+
+    DirectoryProperty getReportDirectory();
+
+    Property<DroolsCompilerService> getCompilerService();
+}
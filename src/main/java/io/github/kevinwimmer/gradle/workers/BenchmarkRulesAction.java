@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.workers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkAction;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieModule;
+import org.kie.api.runtime.KieContainer;
+
+import io.github.kevinwimmer.kie.benchmark.FactDataset;
+import io.github.kevinwimmer.kie.benchmark.RuleBenchmark;
+
+/**
+ * Benchmarks the rules of a Kie JAR on behalf of the {@code BenchmarkRules} task, and compares the
+ * results with the baseline.
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class BenchmarkRulesAction implements WorkAction<BenchmarkRulesParameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(BenchmarkRulesAction.class);
+
+    @Override
+    public void execute() {
+        BenchmarkRulesParameters parameters = getParameters();
+        File kjar = parameters.getKjarFile().get().getAsFile();
+        List<URL> urls = new ArrayList<>();
+        urls.add(urlOf(kjar));
+        parameters.getClasspath().forEach(file -> urls.add(urlOf(file)));
+
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        KieServices ks = KieServices.Factory.get();
+        KieModule kModule = null;
+        KieContainer kieContainer = null;
+        RuleBenchmark.Result result;
+        try (URLClassLoader classLoader = URLClassLoader.newInstance(urls.toArray(new URL[0]), getClass().getClassLoader())) {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            kModule = ks.getRepository().addKieModule(ks.getResources().newFileSystemResource(kjar));
+            kieContainer = ks.newKieContainer(kModule.getReleaseId(), classLoader);
+            List<Object> facts = new ArrayList<>();
+            for (FactDataset dataset : parameters.getDatasets().get()) {
+                facts.addAll(dataset.load(classLoader));
+            }
+            result = new RuleBenchmark(kieContainer, parameters.getKieSession().getOrNull(), facts)
+                    .run(parameters.getWarmupIterations().get(), parameters.getIterations().get());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close the benchmark class loader", e);
+        } finally {
+            if (kieContainer != null) {
+                kieContainer.dispose();
+            }
+            if (kModule != null) {
+                ks.getRepository().removeKieModule(kModule.getReleaseId());
+            }
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+
+        File resultsFile = parameters.getResultsFile().get().getAsFile();
+        writeString(resultsFile, result.toJson());
+        LOGGER.lifecycle("Inserted {} facts and fired {} rules: {} facts/s, fireAllRules p50 {} us, p90 {} us, p99 {} us, {} bytes allocated per fire.",
+                result.facts(), result.rulesFired(), Math.round(result.factsPerSecond()), micros(result.fireLatencyP50()),
+                micros(result.fireLatencyP90()), micros(result.fireLatencyP99()), result.allocatedBytesPerFire());
+
+        File baselineFile = parameters.getBaselineFile().get().getAsFile();
+        if (parameters.getUpdateBaseline().get()) {
+            storeBaseline(baselineFile, result);
+            LOGGER.lifecycle("Baseline written to {}.", baselineFile);
+        } else if (baselineFile.isFile()) {
+            compareWithBaseline(result, loadBaseline(baselineFile), baselineFile);
+        } else {
+            LOGGER.lifecycle("No baseline found at {}, run with --update-baseline to record one.", baselineFile);
+        }
+    }
+
+    private void compareWithBaseline(RuleBenchmark.Result result, RuleBenchmark.Result baseline, File baselineFile) {
+        double maxRegression = getParameters().getMaxRegressionPercent().get();
+        Map<String, Number> current = result.toMap();
+        Map<String, Number> previous = baseline.toMap();
+        List<String> regressions = new ArrayList<>();
+        result.comparedMetrics().forEach((metric, higherIsBetter) -> {
+            double value = current.get(metric).doubleValue();
+            double base = previous.get(metric).doubleValue();
+            if (base <= 0) {
+                return;
+            }
+            double regression = (higherIsBetter ? base - value : value - base) / base * 100;
+            LOGGER.info("{}: {} (baseline {}, {}% regression).", metric, current.get(metric), previous.get(metric),
+                    String.format("%.1f", regression));
+            if (regression > maxRegression) {
+                regressions.add(String.format("%s regressed by %.1f%% (%s, baseline %s)", metric, regression,
+                        current.get(metric), previous.get(metric)));
+            }
+        });
+        if (!regressions.isEmpty()) {
+            regressions.forEach(LOGGER::error);
+            throw new GradleException(String.format("Rule benchmark regressed by more than %.1f%% compared with %s",
+                    maxRegression, baselineFile));
+        }
+        LOGGER.lifecycle("No regression above {}% compared with the baseline.", maxRegression);
+    }
+
+    private RuleBenchmark.Result loadBaseline(File file) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath())) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read file: " + file, e);
+        }
+        return RuleBenchmark.Result.fromProperties(properties);
+    }
+
+    private void storeBaseline(File file, RuleBenchmark.Result result) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(file.toPath())) {
+                result.toProperties().store(writer, "Rule benchmark baseline");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write file: " + file, e);
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private void writeString(File file, String content) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.writeString(file.toPath(), content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write file: " + file, e);
+        }
+    }
+
+    private URL urlOf(File file) {
+        try {
+            return file.toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.workers;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+
+import io.github.kevinwimmer.kie.benchmark.FactDataset;
+
+/**
+ * The parameters of a {@link BenchmarkRulesAction}.
+ *
+ * @author Kevin Wimmer
+ */
+public interface BenchmarkRulesParameters extends WorkParameters {
+
+    RegularFileProperty getKjarFile();
+
+    ConfigurableFileCollection getClasspath();
+
+    ListProperty<FactDataset> getDatasets();
+
+    Property<String> getKieSession();
+
+    Property<Integer> getWarmupIterations();
+
+    Property<Integer> getIterations();
+
+    RegularFileProperty getBaselineFile();
+
+    Property<Double> getMaxRegressionPercent();
+
+    Property<Boolean> getUpdateBaseline();
+
+    RegularFileProperty getResultsFile();
+}
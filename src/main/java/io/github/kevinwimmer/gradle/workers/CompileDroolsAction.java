@@ -0,0 +1,967 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.kevinwimmer.gradle.workers;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.google.protobuf.ExtensionRegistry;
+import org.drools.base.definitions.InternalKnowledgePackage;
+import org.drools.compiler.builder.impl.KnowledgeBuilderImpl;
+import org.drools.compiler.kie.builder.impl.CompilationCacheProvider;
+import org.drools.compiler.kie.builder.impl.DrlProject;
+import org.drools.compiler.kie.builder.impl.InternalKieModule;
+import org.drools.compiler.kie.builder.impl.KieBuilderImpl;
+import org.drools.compiler.kie.builder.impl.KieModuleMetaInfo;
+import org.drools.compiler.kie.builder.impl.ResultsImpl;
+import org.drools.compiler.kie.builder.impl.TypeMetaInfo;
+import org.drools.compiler.kproject.models.KieModuleModelImpl;
+import org.drools.model.codegen.ExecutableModelProject;
+import org.drools.serialization.protobuf.KieModuleCache;
+import org.drools.serialization.protobuf.KieModuleCacheHelper;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.work.ChangeType;
+import org.gradle.workers.WorkAction;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.KieModule;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.model.KieBaseModel;
+import org.kie.api.builder.model.KieModuleModel;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieContainer;
+import org.kie.internal.builder.KnowledgeBuilder;
+import org.kie.memorycompiler.resources.ResourceStore;
+
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+import io.github.kevinwimmer.kie.builder.CompileReport;
+import io.github.kevinwimmer.kie.builder.DecisionTableCache;
+import io.github.kevinwimmer.kie.builder.DrlPackageIndex;
+import io.github.kevinwimmer.kie.builder.DrlSharder;
+import io.github.kevinwimmer.kie.builder.KjarWriter;
+import io.github.kevinwimmer.kie.classpath.IndexedClassLoader;
+import io.github.kevinwimmer.kie.resources.DiskResourceStore;
+import io.github.kevinwimmer.kie.resources.GeneratedFileStore;
+import io.github.kevinwimmer.kie.resources.GeneratedFileWriter;
+import io.github.kevinwimmer.kie.runtime.KieBaseSnapshots;
+import io.github.kevinwimmer.maven.pom.ProjectPomModel;
+
+/**
+ * Builds a KieModule from the project source files on behalf of the {@code CompileDrools} task.
+ * <p>
+ *   This class is largely derived from the
+ *   <a href="https://github.com/kiegroup/droolsjbpm-integration/tree/main/kie-maven-plugin">Kie Maven Plugin</a>
+ *   project.
+ * </p>
+ * <p>
+ *   When {@link CompileDroolsParameters#getIncremental() incremental} compilation is requested, only the
+ *   rule packages containing changed DRL files are recompiled, together with the packages using them and
+ *   the packages these use in turn (as recorded by the {@link DrlPackageIndex}), unless any of these
+ *   packages also contains a decision table or another non-DRL resource; the class files of all
+ *   other packages are kept from the previous run. The compiled classes of the recompiled packages replace
+ *   theirs in the compilation cache ({@code kbase.cache}) of each KieBase, while KieBase snapshots are
+ *   omitted until the next full build. Changes to any other kind of Drools resource, to
+ *   {@code kmodule.xml}, or to a package that declares types trigger a full rebuild.
+ * </p>
+ * <p>
+ *   A full build compiles each group of KieBases related through {@code includes} with its own
+ *   {@code KieBuilder}, running up to {@link CompileDroolsParameters#getMaxParallelKieBases()} groups
+ *   concurrently, and merges their class files and metadata into a single output directory.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class CompileDroolsAction implements WorkAction<CompileDroolsParameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(CompileDroolsAction.class);
+
+    private static final String RESOURCES_ROOT = "src/main/resources/";
+    private static final String META_INF = "META-INF/";
+    private static final String KMODULE_INFO_PATH = META_INF + "kmodule.info";
+    private static final String KBASE_CACHE_FILE_NAME = "kbase.cache";
+    private static final String EXECUTABLE_MODEL_PATH = META_INF + "kie/";
+    private static final String DECISION_TABLE_CONFIGURATION_SUFFIX = ".properties";
+
+    private CompileReport report;
+    private final List<KieModule> upstreamModules = new ArrayList<>();
+
+    @Override
+    public void execute() {
+        CompileDroolsParameters parameters = getParameters();
+        File outputDir = parameters.getOutputDirectory().get().getAsFile();
+        DroolsCompilerService compilerService = parameters.getCompilerService().getOrNull();
+        report = new CompileReport();
+        ClassLoader projectClassLoader = report.time("classpath", () -> compilerService != null
+                ? compilerService.acquireClassLoader(parameters.getClasspath().getFiles())
+                : createClassLoader(parameters.getClasspath().getFiles(), getClass().getClassLoader()));
+        IndexedClassLoader indexedClassLoader = projectClassLoader instanceof IndexedClassLoader indexed ? indexed : null;
+        long classLookupHits = indexedClassLoader != null ? indexedClassLoader.getHits() : 0;
+        long classLookupMisses = indexedClassLoader != null ? indexedClassLoader.getMisses() : 0;
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader classLoader = createClassLoader(Set.of(outputDir), projectClassLoader)) {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            List<File> sourceDirs = List.copyOf(parameters.getSourceDirectories().getFiles());
+            File stateDir = parameters.getStateDirectory().get().getAsFile();
+            registerUpstreamKjars();
+
+            boolean executableModel = parameters.getExecutableModel().get();
+            if (executableModel && parameters.getIncremental().get()) {
+                LOGGER.info("Incremental compilation is not supported by the executable model, rebuilding all packages.");
+            }
+            DrlPackageIndex index = parameters.getIncremental().get() && !executableModel ? DrlPackageIndex.load(stateDir) : null;
+            Set<String> packages = index != null ? collectAffectedPackages(parameters.getChanges().get(), sourceDirs, index) : null;
+            if (packages != null && !packages.isEmpty()) {
+                Set<String> changedPackages = packages;
+                packages = index.collectDependencyClosure(changedPackages);
+                if (packages.size() > changedPackages.size()) {
+                    LOGGER.info("Rebuilding packages {} along with the changed packages {}.", packages, new TreeSet<>(changedPackages));
+                }
+                String mixedPackage = packages.stream().filter(index::containsOtherResources).findFirst().orElse(null);
+                if (mixedPackage != null) {
+                    LOGGER.info("Package {} contains decision tables or other non-DRL resources, rebuilding all packages.", mixedPackage);
+                    packages = null;
+                }
+            }
+            Map<String, byte[]> generated = Collections.emptyMap();
+            if (packages == null) {
+                generated = buildAll(sourceDirs, outputDir, stateDir);
+                LOGGER.info("KieModule successfully built!");
+            } else if (packages.isEmpty()) {
+                report.setMode("up-to-date");
+                LOGGER.info("No Drools source files changed, KieModule is up to date.");
+            } else {
+                report.setMode("incremental");
+                if (parameters.getKieBaseSnapshots().get()) {
+                    LOGGER.warn("KieBase snapshots are only generated by full builds, the Kie JAR will not contain any.");
+                }
+                buildPackages(packages, index, sourceDirs, outputDir, stateDir);
+                LOGGER.info("KieModule packages {} successfully rebuilt!", packages);
+            }
+            if (parameters.getArchiveFile().isPresent()) {
+                Map<String, byte[]> files = generated;
+                report.time("archive", () -> writeArchive(files, outputDir, parameters.getArchiveFile().get().getAsFile()));
+            }
+            if (indexedClassLoader != null) {
+                // the class loader may be shared with concurrent builds, which makes these counts approximate
+                long hits = indexedClassLoader.getHits() - classLookupHits;
+                long misses = indexedClassLoader.getMisses() - classLookupMisses;
+                report.count("classLookupHits", hits);
+                report.count("classLookupMisses", misses);
+                LOGGER.info("Class lookups: {} found on the classpath, {} rejected by the classpath index.", hits, misses);
+            }
+            File reportDir = parameters.getReportDirectory().get().getAsFile();
+            report.write(reportDir);
+            LOGGER.info("Compile report written to {}.", reportDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close the project class loader", e);
+        } finally {
+            upstreamModules.forEach(kModule -> releaseKieModule(kModule.getReleaseId()));
+            report.close();
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            releaseClassLoader(compilerService, projectClassLoader);
+        }
+    }
+
+    /**
+     * Registers the precompiled Kie JARs of upstream projects with the Kie repository, so that the
+     * builder links the KieModule against them (including their compilation cache and
+     * {@code kmodule.info}) rather than building them again from the classpath.
+     */
+    private void registerUpstreamKjars() {
+        for (File kjar : getParameters().getUpstreamKjars()) {
+            if (kjar.isFile()) {
+                KieModule kModule = acquireKieModule(kjar);
+                upstreamModules.add(kModule);
+                LOGGER.info("Linking against precompiled Kie JAR {} ({}).", kModule.getReleaseId(), kjar.getName());
+            }
+        }
+        report.count("upstreamKjars", upstreamModules.size());
+    }
+
+    private void releaseClassLoader(DroolsCompilerService compilerService, ClassLoader classLoader) {
+        if (compilerService != null) {
+            compilerService.releaseClassLoader(classLoader);
+        } else {
+            try {
+                ((URLClassLoader) classLoader).close();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to close the project class loader.", e);
+            }
+        }
+    }
+
+    private KieServices getKieServices() {
+        DroolsCompilerService compilerService = getParameters().getCompilerService().getOrNull();
+        return compilerService != null ? compilerService.getKieServices() : KieServices.Factory.get();
+    }
+
+    /**
+     * Adds the given Kie JAR to the Kie repository, which is shared with concurrent tasks unless the
+     * worker is isolated.
+     */
+    private KieModule acquireKieModule(File kjar) {
+        DroolsCompilerService compilerService = getParameters().getCompilerService().getOrNull();
+        if (compilerService != null) {
+            return compilerService.acquireKieModule(kjar);
+        }
+        KieServices ks = KieServices.Factory.get();
+        return ks.getRepository().addKieModule(ks.getResources().newFileSystemResource(kjar));
+    }
+
+    private void acquireKieModule(KieModule kModule) {
+        DroolsCompilerService compilerService = getParameters().getCompilerService().getOrNull();
+        if (compilerService != null) {
+            compilerService.acquireKieModule(kModule);
+        } else {
+            KieServices.Factory.get().getRepository().addKieModule(kModule);
+        }
+    }
+
+    private void releaseKieModule(ReleaseId releaseId) {
+        DroolsCompilerService compilerService = getParameters().getCompilerService().getOrNull();
+        if (compilerService != null) {
+            compilerService.releaseKieModule(releaseId);
+        } else {
+            KieServices.Factory.get().getRepository().removeKieModule(releaseId);
+        }
+    }
+
+    /**
+     * Fully builds the KieModule.
+     *
+     * @return the generated files, keyed by path relative to the output directory
+     */
+    private Map<String, byte[]> buildAll(List<File> sourceDirs, File outputDir, File stateDir) {
+        outputDir.mkdirs();
+
+        Map<String, byte[]> sources = new LinkedHashMap<>();
+        DrlPackageIndex index = new DrlPackageIndex();
+        report.time("readSources", () -> {
+            for (File file : getParameters().getSources()) {
+                String source = relativePath(sourceDirs, file);
+                byte[] content = readBytes(file);
+                sources.put(source, content);
+                report.count("sourceBytes", content.length);
+            }
+        });
+        report.count("sourceFiles", sources.size());
+        Set<String> drlSources = sources.keySet()
+                .stream()
+                .filter(ResourceType.DRL::matchesExtension)
+                .collect(Collectors.toSet());
+        if (sources.keySet().stream().anyMatch(DecisionTableCache::isDecisionTable)) {
+            report.time("decisionTables", () -> convertDecisionTables(sources));
+        }
+        // the DRL converted from decision tables is indexed along with the other resources that cannot be
+        // recompiled on their own, so that changes affecting their packages trigger a full build
+        sources.forEach((source, content) -> {
+            if (drlSources.contains(source)) {
+                index.putSource(source, new String(content, StandardCharsets.UTF_8));
+            } else if (ResourceType.determineResourceType(source) != null) {
+                index.putResource(source, new String(content, StandardCharsets.UTF_8));
+            }
+        });
+
+        boolean executableModel = getParameters().getExecutableModel().get();
+        int maxRulesPerShard = getParameters().getMaxRulesPerShard().get();
+        DrlSharder.Result sharding = maxRulesPerShard > 0 && !executableModel
+                ? report.time("shard", () -> new DrlSharder(maxRulesPerShard).shard(readDrlSources(sources)))
+                : null;
+        boolean sharded = sharding != null && !sharding.isEmpty();
+        boolean snapshots = getParameters().getKieBaseSnapshots().get() && !executableModel && !sharded;
+        if (getParameters().getKieBaseSnapshots().get() && executableModel) {
+            LOGGER.warn("KieBase snapshots are not generated for the executable model.");
+        } else if (getParameters().getKieBaseSnapshots().get() && sharded) {
+            LOGGER.warn("KieBase snapshots are not generated for sharded packages.");
+        }
+        GeneratedFileWriter writer = new GeneratedFileWriter(outputDir);
+        Map<String, Set<String>> classFiles = new HashMap<>();
+        MetaInfo metaInfo = new MetaInfo(new HashMap<>(), new HashMap<>());
+        ResourceStore store = new GeneratedFileStore(outputDir, writer);
+        List<InternalKieModule> kModules = report.time("build", () -> sharded
+                ? buildShards(sources, sharding)
+                : buildKieBaseGroups(sources));
+        if (sharded) {
+            report.time("mergeShards", () -> mergeShards(kModules, sharding.packages().keySet()));
+        } else {
+            report.count("kieBaseGroups", kModules.size());
+        }
+        report.time("writeClassFiles", () -> kModules.forEach(kModule -> addClassFiles(classFiles, writeClassFiles(kModule, writer))));
+        classFiles.forEach(index::putClasses);
+        if (!executableModel) {
+            report.time("writeMetadata", () -> {
+                // the first module of a sharded build holds the merged packages of all shards
+                List<InternalKieModule> builtModules = sharded ? kModules.subList(0, 1) : kModules;
+                builtModules.forEach(kModule -> writeKieModuleMetaInfo(kModule, store, outputDir, metaInfo));
+                writeMergedKieModuleMetaInfo(writer, metaInfo, builtModules.size() > 1);
+            });
+        }
+        if (snapshots) {
+            report.time("snapshots", () -> {
+                kModules.forEach(kModule -> writeKieBaseSnapshots(kModule, writer));
+                writeKieBaseSnapshotsLoader(kModules.get(0).getReleaseId(), writer);
+            });
+        }
+        // all generated files, metadata and snapshots went through the writer, so anything else is stale
+        report.count("staleFilesDeleted", writer.deleteStaleFiles());
+        countWrittenFiles(writer);
+        index.store(stateDir);
+        return writer.getContents();
+    }
+
+    /**
+     * Replaces the decision tables among the given sources (and their {@code .properties} configuration)
+     * by the DRL converted from them, reusing the DRL cached for unchanged workbooks.
+     */
+    private void convertDecisionTables(Map<String, byte[]> sources) {
+        DecisionTableCache cache = new DecisionTableCache(
+                getParameters().getDecisionTableCacheDirectory().get().getAsFile(), getKieServices().getResources());
+        int retentionDays = getParameters().getDecisionTableCacheRetentionDays().get();
+        int deleted = cache.deleteUnusedEntries(Duration.ofDays(retentionDays));
+        if (deleted > 0) {
+            LOGGER.info("Deleted {} decision table cache entries not used for {} days.", deleted, retentionDays);
+        }
+        cache.convert(sources).forEach((source, drl) -> {
+            sources.remove(source);
+            sources.remove(source + DECISION_TABLE_CONFIGURATION_SUFFIX);
+            sources.put(DecisionTableCache.toDrlSource(source), drl.getBytes(StandardCharsets.UTF_8));
+        });
+        report.count("decisionTables", cache.getHits() + cache.getMisses());
+        report.count("decisionTableCacheHits", cache.getHits());
+        LOGGER.info("Converted {} decision tables, {} of them reused from the cache.",
+                cache.getHits() + cache.getMisses(), cache.getHits());
+    }
+
+    private void addClassFiles(Map<String, Set<String>> classFiles, Map<String, Set<String>> written) {
+        written.forEach((pkg, files) -> classFiles
+                .computeIfAbsent(pkg, key -> new HashSet<>())
+                .addAll(files));
+    }
+
+    private void countWrittenFiles(GeneratedFileWriter writer) {
+        report.count("generatedFiles", writer.getFileCount());
+        report.count("filesWritten", writer.getWrittenCount());
+        report.count("filesUnchanged", writer.getUnchangedCount());
+        report.count("bytesWritten", writer.getWrittenBytes());
+        LOGGER.info("Wrote {} generated files ({} bytes), {} unchanged.",
+                writer.getWrittenCount(), writer.getWrittenBytes(), writer.getUnchangedCount());
+    }
+
+    /**
+     * Assembles the Kie JAR from the given generated files, the remaining files of the output directory
+     * (metadata and class files kept from previous builds) and the archive directories.
+     */
+    private void writeArchive(Map<String, byte[]> generated, File outputDir, File archive) {
+        long start = System.nanoTime();
+        KjarWriter kjar = new KjarWriter(getParameters().getArchiveCompressionLevel().get())
+                .addAll(generated)
+                .addDirectory(outputDir);
+        getParameters().getArchiveDirectories().forEach(kjar::addDirectory);
+        kjar.write(archive);
+        LOGGER.info("Kie JAR {} assembled in {} ms.", archive, toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Builds the KieModule from the given sources. Groups of KieBases that are not related through
+     * {@code includes} are compiled by separate builders on a bounded thread pool; the executable model is
+     * always compiled by a single builder, since its rule model index spans all KieBases.
+     *
+     * @return the modules built, each containing the KieBases of one group
+     */
+    private List<InternalKieModule> buildKieBaseGroups(Map<String, byte[]> sources) {
+        String kmoduleXml = getParameters().getKmoduleXml().get();
+        List<Set<String>> groups = getParameters().getExecutableModel().get()
+                ? Collections.emptyList()
+                : groupKieBases(KieModuleModelImpl.fromXML(kmoduleXml));
+        if (groups.size() <= 1) {
+            return List.of(build(createKieFileSystem(sources, kmoduleXml)));
+        }
+        LOGGER.info("Compiling {} independent KieBase groups.", groups.size());
+        return buildConcurrently(groups.stream()
+                .map(group -> new BuildUnit(sources, retainKieBases(kmoduleXml, group)))
+                .toList());
+    }
+
+    /**
+     * Builds the KieModule with the oversized packages split into the given shards. The first shard of
+     * each package is compiled along with all other sources; every further shard is compiled on its own,
+     * together with the definitions (functions, queries, globals and type declarations) of all sources.
+     *
+     * @return the modules built, the first holding all unsharded sources
+     */
+    private List<InternalKieModule> buildShards(Map<String, byte[]> sources, DrlSharder.Result sharding) {
+        String kmoduleXml = getParameters().getKmoduleXml().get();
+        Map<String, byte[]> mainSources = new LinkedHashMap<>(sources);
+        Map<String, byte[]> definitions = new LinkedHashMap<>();
+        sharding.definitions().forEach((source, content) -> definitions.put(source, content.getBytes(StandardCharsets.UTF_8)));
+
+        List<BuildUnit> units = new ArrayList<>();
+        sharding.packages().forEach((pkg, packageShards) -> {
+            LOGGER.info("Compiling package {} in {} shards.", pkg, packageShards.size());
+            packageShards.get(0).forEach((source, content) -> mainSources.put(source, content.getBytes(StandardCharsets.UTF_8)));
+            for (Map<String, String> shard : packageShards.subList(1, packageShards.size())) {
+                Map<String, byte[]> shardSources = new LinkedHashMap<>(definitions);
+                shard.forEach((source, content) -> shardSources.put(source, content.getBytes(StandardCharsets.UTF_8)));
+                units.add(new BuildUnit(shardSources, kmoduleXml));
+            }
+        });
+        units.add(0, new BuildUnit(mainSources, kmoduleXml));
+        report.count("shards", units.size());
+        return buildConcurrently(units);
+    }
+
+    /**
+     * Merges the sharded packages compiled by all but the first of the given modules into the packages of
+     * the first module, so that its KieBases, and the compilation cache written from them, hold the rules
+     * and compiled classes of all shards as a single package.
+     */
+    private void mergeShards(List<InternalKieModule> kModules, Set<String> packages) {
+        InternalKieModule main = kModules.get(0);
+        for (String kieBaseName : main.getKieModuleModel().getKieBaseModels().keySet()) {
+            KnowledgeBuilderImpl kBuilder = (KnowledgeBuilderImpl) main.getKnowledgeBuilderForKieBase(kieBaseName);
+            for (InternalKieModule shard : kModules.subList(1, kModules.size())) {
+                KnowledgeBuilder shardBuilder = shard.getKnowledgeBuilderForKieBase(kieBaseName);
+                if (kBuilder != null && shardBuilder != null) {
+                    shardBuilder.getKnowledgePackages()
+                            .stream()
+                            .filter(pkg -> packages.contains(pkg.getName()))
+                            .forEach(pkg -> kBuilder.addPackage((InternalKnowledgePackage) pkg));
+                }
+            }
+        }
+    }
+
+    private Map<String, String> readDrlSources(Map<String, byte[]> sources) {
+        Map<String, String> drlSources = new LinkedHashMap<>();
+        sources.forEach((source, content) -> {
+            if (ResourceType.DRL.matchesExtension(source)) {
+                drlSources.put(source, new String(content, StandardCharsets.UTF_8));
+            }
+        });
+        return drlSources;
+    }
+
+    /**
+     * The sources and {@code kmodule.xml} of one of several KieModules built concurrently.
+     */
+    private record BuildUnit(Map<String, byte[]> sources, String kmoduleXml) {
+    }
+
+    /**
+     * Builds the given units with separate builders, running up to
+     * {@link CompileDroolsParameters#getMaxParallelKieBases()} builds at a time.
+     */
+    private List<InternalKieModule> buildConcurrently(List<BuildUnit> units) {
+        int threads = Math.max(1, Math.min(units.size(), getParameters().getMaxParallelKieBases().get()));
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<InternalKieModule>> futures = new ArrayList<>();
+            for (BuildUnit unit : units) {
+                futures.add(executor.submit(() -> {
+                    Thread.currentThread().setContextClassLoader(classLoader);
+                    return build(createKieFileSystem(unit.sources(), unit.kmoduleXml()));
+                }));
+            }
+            List<InternalKieModule> kModules = new ArrayList<>();
+            for (Future<InternalKieModule> future : futures) {
+                kModules.add(getResult(future));
+            }
+            return kModules;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Partitions the KieBases of the given module into groups that are not related through
+     * {@code includes}. KieBases included from other Kie JARs are ignored.
+     */
+    private List<Set<String>> groupKieBases(KieModuleModel model) {
+        Map<String, Set<String>> groups = new LinkedHashMap<>();
+        model.getKieBaseModels().keySet().forEach(name -> groups.put(name, new TreeSet<>(Set.of(name))));
+        for (KieBaseModel kieBase : model.getKieBaseModels().values()) {
+            for (String include : kieBase.getIncludes()) {
+                Set<String> group = groups.get(kieBase.getName());
+                Set<String> included = groups.get(include);
+                if (included != null && included != group) {
+                    group.addAll(included);
+                    included.forEach(name -> groups.put(name, group));
+                }
+            }
+        }
+        return groups.values().stream().distinct().toList();
+    }
+
+    private String retainKieBases(String kmoduleXml, Set<String> kieBaseNames) {
+        KieModuleModel model = KieModuleModelImpl.fromXML(kmoduleXml);
+        new ArrayList<>(model.getKieBaseModels().keySet())
+                .stream()
+                .filter(name -> !kieBaseNames.contains(name))
+                .forEach(model::removeKieBaseModel);
+        return model.toXML();
+    }
+
+    private KieFileSystem createKieFileSystem(Map<String, byte[]> sources, String kmoduleXml) {
+        KieFileSystem kfs = getKieServices().newKieFileSystem();
+        sources.forEach((source, content) -> kfs.write(RESOURCES_ROOT + source, content));
+        kfs.writeKModuleXML(kmoduleXml);
+        return kfs;
+    }
+
+    private InternalKieModule getResult(Future<InternalKieModule> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while compiling KieBases", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GradleException("Unable to compile KieBases", e.getCause());
+        }
+    }
+
+    /**
+     * The {@code kmodule.info} contents merged from the modules of a full build.
+     */
+    private record MetaInfo(Map<String, TypeMetaInfo> typeMetaInfos, Map<String, Set<String>> rulesByPackage) {
+    }
+
+    /**
+     * Writes the metadata of the given module through the given store. The compilation cache of each
+     * KieBase is written by the module that built it, while its {@code kmodule.info} is merged into the
+     * given metadata.
+     */
+    private void writeKieModuleMetaInfo(InternalKieModule kModule, ResourceStore store, File outputDir, MetaInfo merged) {
+        CompilationCacheProvider.get().writeKieModuleMetaInfo(kModule, store);
+        KieModuleMetaInfo metaInfo = KieModuleMetaInfo.unmarshallMetaInfos(readString(new File(outputDir, KMODULE_INFO_PATH)));
+        merged.typeMetaInfos().putAll(metaInfo.getTypeMetaInfos());
+        metaInfo.getRulesByPackage().forEach((pkg, rules) -> merged.rulesByPackage()
+                .computeIfAbsent(pkg, key -> new HashSet<>())
+                .addAll(rules));
+    }
+
+    /**
+     * Replaces the {@code kmodule.info} written by the last module with the given merged metadata, unless
+     * only one module was built.
+     */
+    private void writeMergedKieModuleMetaInfo(GeneratedFileWriter writer, MetaInfo merged, boolean replace) {
+        if (replace) {
+            String metaInfo = new KieModuleMetaInfo(merged.typeMetaInfos(), merged.rulesByPackage()).marshallMetaInfos();
+            writer.write(Map.of(KMODULE_INFO_PATH, metaInfo.getBytes(StandardCharsets.UTF_8)));
+        }
+        report.count("packages", merged.rulesByPackage().size());
+        report.count("rules", merged.rulesByPackage().values().stream().mapToLong(Set::size).sum());
+        report.count("types", merged.typeMetaInfos().size());
+    }
+
+    /**
+     * Fully builds each KieBase of the given module and serializes it through the given writer.
+     */
+    private void writeKieBaseSnapshots(InternalKieModule kModule, GeneratedFileWriter writer) {
+        KieServices ks = getKieServices();
+        acquireKieModule(kModule);
+        KieContainer kieContainer = ks.newKieContainer(kModule.getReleaseId(), Thread.currentThread().getContextClassLoader());
+        try {
+            for (String kieBaseName : kieContainer.getKieBaseNames()) {
+                long start = System.nanoTime();
+                KieBase kieBase = kieContainer.getKieBase(kieBaseName);
+                long built = System.nanoTime();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                KieBaseSnapshots.write(kieBase, out);
+                byte[] snapshot = out.toByteArray();
+                long serialized = System.nanoTime();
+                KieBaseSnapshots.read(new ByteArrayInputStream(snapshot), Thread.currentThread().getContextClassLoader());
+                long loaded = System.nanoTime();
+                writer.write(Map.of(KieBaseSnapshots.getSnapshotPath(kieBaseName), snapshot));
+                LOGGER.lifecycle("KieBase {}: built in {} ms, serialized ({} bytes) in {} ms, deserialized in {} ms.",
+                        kieBaseName, toMillis(built - start), snapshot.length, toMillis(serialized - built), toMillis(loaded - serialized));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write KieBase snapshots", e);
+        } finally {
+            kieContainer.dispose();
+            releaseKieModule(kModule.getReleaseId());
+        }
+    }
+
+    /**
+     * Generates the class that applications use to load the snapshots into the package of the Kie JAR
+     * with the given release ID, so that it is never shared with other Kie JARs.
+     */
+    private void writeKieBaseSnapshotsLoader(ReleaseId releaseId, GeneratedFileWriter writer) {
+        String className = KieBaseSnapshots.getLoaderClassName(releaseId);
+        writer.write(KieBaseSnapshots.generateLoader(className, Thread.currentThread().getContextClassLoader()));
+        LOGGER.lifecycle("KieBase snapshots can be loaded with {}.load(kieBaseName).", className);
+    }
+
+    private long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private void buildPackages(Set<String> packages, DrlPackageIndex index,
+            List<File> sourceDirs, File outputDir, File stateDir) {
+        List<String> sources = index.getPackagesBySource()
+                .entrySet()
+                .stream()
+                .filter(entry -> packages.contains(entry.getValue()))
+                .map(Map.Entry::getKey)
+                .toList();
+        packages.forEach(index::clearPackage);
+
+        KieFileSystem kfs = getKieServices().newKieFileSystem();
+        kfs.writeKModuleXML(getParameters().getKmoduleXml().get());
+        report.time("readSources", () -> {
+            for (String source : sources) {
+                String content = readString(sourceFile(sourceDirs, source));
+                index.putSource(source, content);
+                kfs.write(RESOURCES_ROOT + source, content);
+            }
+        });
+        report.count("sourceFiles", sources.size());
+        report.count("packagesRebuilt", packages.size());
+
+        Map<String, Set<String>> classFiles = Collections.emptyMap();
+        InternalKieModule kModule = null;
+        if (!sources.isEmpty()) {
+            kModule = report.time("build", () -> build(kfs));
+            GeneratedFileWriter writer = new GeneratedFileWriter(outputDir);
+            InternalKieModule builtModule = kModule;
+            classFiles = report.time("writeClassFiles", () -> writeClassFiles(builtModule, writer));
+            countWrittenFiles(writer);
+        }
+
+        for (String pkg : packages) {
+            deleteStaleClassFiles(index.getClasses(pkg), classFiles, outputDir);
+            index.putClasses(pkg, classFiles.getOrDefault(pkg, Collections.emptySet()));
+        }
+        InternalKieModule builtModule = kModule;
+        report.time("writeMetadata", () -> mergeKieModuleMetaInfo(builtModule, packages, outputDir));
+        index.store(stateDir);
+    }
+
+    /**
+     * Determines the rule packages affected by the given changes, updating the index with the new
+     * locations of the changed source files.
+     *
+     * @return the affected packages, or {@code null} if a full rebuild is required
+     */
+    private Set<String> collectAffectedPackages(Map<String, ChangeType> changes, List<File> sourceDirs, DrlPackageIndex index) {
+        Set<String> packages = new HashSet<>();
+        for (Map.Entry<String, ChangeType> change : changes.entrySet()) {
+            String source = change.getKey();
+            if (source.startsWith(META_INF)) {
+                return null;
+            }
+            if (isDecisionTableConfiguration(source)) {
+                LOGGER.info("{} configures a decision table, rebuilding all packages.", source);
+                return null;
+            }
+            if (ResourceType.determineResourceType(source) == null) {
+                continue;
+            }
+            if (!ResourceType.DRL.matchesExtension(source)) {
+                LOGGER.info("{} is not a DRL file, rebuilding all packages.", source);
+                return null;
+            }
+            String previousPackage = index.getPackage(source);
+            if (previousPackage != null) {
+                if (index.declaresTypes(previousPackage)) {
+                    return null;
+                }
+                packages.add(previousPackage);
+            } else if (change.getValue() != ChangeType.ADDED) {
+                return null;
+            }
+            if (change.getValue() == ChangeType.REMOVED) {
+                index.removeSource(source);
+            } else {
+                String pkg = index.putSource(source, readString(sourceFile(sourceDirs, source)));
+                if (index.declaresTypes(pkg)) {
+                    return null;
+                }
+                packages.add(pkg);
+            }
+        }
+        return packages;
+    }
+
+    private boolean isDecisionTableConfiguration(String source) {
+        return source.endsWith(DECISION_TABLE_CONFIGURATION_SUFFIX)
+                && DecisionTableCache.isDecisionTable(source.substring(0, source.length() - DECISION_TABLE_CONFIGURATION_SUFFIX.length()));
+    }
+
+    private InternalKieModule build(KieFileSystem kfs) {
+        KieBuilderImpl kieBuilder = (KieBuilderImpl) getKieServices().newKieBuilder(kfs);
+        kieBuilder.setPomModel(new ProjectPomModel(getParameters().getReleaseId().get(),
+                getParameters().getParentReleaseId().getOrNull(), getParameters().getDependencies().get()));
+        kieBuilder.buildAll(getParameters().getExecutableModel().get() ? ExecutableModelProject.SUPPLIER : DrlProject.SUPPLIER,
+                s -> true);
+        InternalKieModule kModule = (InternalKieModule) kieBuilder.getKieModule();
+        failOnErrors(kieBuilder);
+        return kModule;
+    }
+
+    private void failOnErrors(KieBuilderImpl kieBuilder) {
+        ResultsImpl messages = (ResultsImpl) kieBuilder.getResults();
+
+        List<Message> errors = messages != null ? messages.filterMessages(Message.Level.ERROR) : Collections.emptyList();
+
+        if (!errors.isEmpty()) {
+            for (Message error : errors) {
+                LOGGER.error(error.toString());
+            }
+            throw new GradleException("Build failed!");
+        }
+    }
+
+    private void mergeKieModuleMetaInfo(InternalKieModule kModule, Set<String> packages, File outputDir) {
+        Map<String, TypeMetaInfo> typeMetaInfos = new HashMap<>();
+        Map<String, Set<String>> rulesByPackage = new HashMap<>();
+        File metaInfoFile = new File(outputDir, KMODULE_INFO_PATH);
+        if (metaInfoFile.isFile()) {
+            KieModuleMetaInfo previous = KieModuleMetaInfo.unmarshallMetaInfos(readString(metaInfoFile));
+            previous.getTypeMetaInfos().forEach((type, info) -> {
+                if (!packages.contains(DrlPackageIndex.packageOfClass(type))) {
+                    typeMetaInfos.put(type, info);
+                }
+            });
+            previous.getRulesByPackage().forEach((pkg, rules) -> {
+                if (!packages.contains(pkg)) {
+                    rulesByPackage.put(pkg, rules);
+                }
+            });
+        }
+        File metaInfoDir = getParameters().getTemporaryDirectory().dir("meta").get().getAsFile();
+        // the compilation caches of a previous run must not be mistaken for those of this one
+        deleteKieBaseFiles(metaInfoDir, KBASE_CACHE_FILE_NAME);
+        if (kModule != null) {
+            CompilationCacheProvider.get().writeKieModuleMetaInfo(kModule, new DiskResourceStore(metaInfoDir));
+            KieModuleMetaInfo current = KieModuleMetaInfo.unmarshallMetaInfos(readString(new File(metaInfoDir, KMODULE_INFO_PATH)));
+            typeMetaInfos.putAll(current.getTypeMetaInfos());
+            rulesByPackage.putAll(current.getRulesByPackage());
+        }
+        writeString(metaInfoFile, new KieModuleMetaInfo(typeMetaInfos, rulesByPackage).marshallMetaInfos());
+
+        mergeCompilationCaches(metaInfoDir, packages, outputDir);
+        for (File file : deleteKieBaseFiles(outputDir, KieBaseSnapshots.SNAPSHOT_FILE_NAME)) {
+            LOGGER.info("Removed {}, it is only generated by full builds.", file);
+        }
+    }
+
+    /**
+     * Replaces the compiled classes of the rebuilt packages in the compilation cache of each KieBase by
+     * those written to the given directory by the partial build. A KieBase without a compilation cache
+     * (e.g. one added since the last full build) is left without one, since the classes of the packages
+     * that were not rebuilt are missing from the partial build.
+     */
+    private void mergeCompilationCaches(File metaInfoDir, Set<String> packages, File outputDir) {
+        File[] kbaseDirs = new File(outputDir, META_INF).listFiles(File::isDirectory);
+        for (File kbaseDir : kbaseDirs != null ? kbaseDirs : new File[0]) {
+            File cacheFile = new File(kbaseDir, KBASE_CACHE_FILE_NAME);
+            if (!cacheFile.isFile()) {
+                continue;
+            }
+            KieModuleCache.KModuleCache.Builder merged = KieModuleCache.KModuleCache.newBuilder();
+            for (KieModuleCache.CompilationData data : readCompilationCache(cacheFile).getCompilationDataList()) {
+                if (data.getEntryList().stream().noneMatch(entry -> packages.contains(DrlPackageIndex.packageOfClassFile(entry.getId())))) {
+                    merged.addCompilationData(data);
+                }
+            }
+            File partialCacheFile = new File(metaInfoDir, META_INF + kbaseDir.getName() + "/" + KBASE_CACHE_FILE_NAME);
+            if (partialCacheFile.isFile()) {
+                merged.addAllCompilationData(readCompilationCache(partialCacheFile).getCompilationDataList());
+            }
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(cacheFile))) {
+                KieModuleCacheHelper.writeToStreamWithHeader(out, merged.build());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write file: " + cacheFile, e);
+            }
+        }
+    }
+
+    private KieModuleCache.KModuleCache readCompilationCache(File cacheFile) {
+        try (InputStream in = new FileInputStream(cacheFile)) {
+            ExtensionRegistry registry = KieModuleCacheHelper.buildRegistry();
+            KieModuleCache.Header header = KieModuleCacheHelper.readFromStreamWithHeaderPreloaded(in, registry);
+            return KieModuleCache.KModuleCache.parseFrom(header.getPayload(), registry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read file: " + cacheFile, e);
+        }
+    }
+
+    /**
+     * Deletes the file with the given name from the directory of each KieBase under the given directory.
+     *
+     * @return the deleted files
+     */
+    private List<File> deleteKieBaseFiles(File dir, String fileName) {
+        List<File> deleted = new ArrayList<>();
+        File[] kbaseDirs = new File(dir, META_INF).listFiles(File::isDirectory);
+        for (File kbaseDir : kbaseDirs != null ? kbaseDirs : new File[0]) {
+            File file = new File(kbaseDir, fileName);
+            if (file.delete()) {
+                deleted.add(file);
+            }
+        }
+        return deleted;
+    }
+
+    private void deleteStaleClassFiles(Set<String> previous, Map<String, Set<String>> current, File outputDir) {
+        for (String classFile : previous) {
+            if (!current.getOrDefault(DrlPackageIndex.packageOfClassFile(classFile), Collections.emptySet()).contains(classFile)) {
+                try {
+                    Files.deleteIfExists(Paths.get(outputDir.getPath(), classFile));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to delete file: " + classFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the path of the given source file relative to the source directory containing it.
+     */
+    private String relativePath(List<File> dirs, File file) {
+        for (File dir : dirs) {
+            if (file.toPath().startsWith(dir.toPath())) {
+                return relativePath(dir, file);
+            }
+        }
+        throw new GradleException("Source file " + file + " is not located in any of the source directories " + dirs);
+    }
+
+    /**
+     * Returns the source file at the given path relative to the first source directory containing it.
+     */
+    private File sourceFile(List<File> dirs, String source) {
+        for (File dir : dirs) {
+            File file = new File(dir, source);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return new File(dirs.get(0), source);
+    }
+
+    private String relativePath(File dir, File file) {
+        return dir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private byte[] readBytes(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read file: " + file, e);
+        }
+    }
+
+    private String readString(File file) {
+        try {
+            return Files.readString(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read file: " + file, e);
+        }
+    }
+
+    private void writeString(File file, String content) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.writeString(file.toPath(), content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write file: " + file, e);
+        }
+    }
+
+    private URLClassLoader createClassLoader(Set<File> files, ClassLoader parent) {
+        Set<URL> urls = new HashSet<>();
+        files.forEach(file -> urls.add(urlOf(file)));
+        return URLClassLoader.newInstance(urls.toArray(new URL[0]), parent);
+    }
+
+    private URL urlOf(File file) {
+        try {
+            return file.toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the class files (and executable model resources) of the given module, leaving files whose
+     * content is unchanged untouched.
+     *
+     * @return the paths of the written files, keyed by package
+     */
+    private Map<String, Set<String>> writeClassFiles(InternalKieModule kModule, GeneratedFileWriter writer) {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        getGeneratedFileNames(kModule).forEach(fileName -> contents.put(fileName, kModule.getBytes(fileName)));
+        writer.write(contents);
+
+        Map<String, Set<String>> classFiles = new HashMap<>();
+        contents.keySet().forEach(classFile -> classFiles
+                .computeIfAbsent(DrlPackageIndex.packageOfClassFile(classFile), pkg -> new HashSet<>())
+                .add(classFile));
+        return classFiles;
+    }
+
+    /**
+     * Returns the names of the class files (and executable model resources) generated into the given module.
+     */
+    private List<String> getGeneratedFileNames(InternalKieModule kModule) {
+        return kModule.getFileNames()
+                .stream()
+                .filter(name -> (name.endsWith(".class") || name.startsWith(EXECUTABLE_MODEL_PATH))
+                        && !name.contains("build/classes") && !name.contains("build\\classes"))
+                .toList();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.kevinwimmer.gradle.workers;
+
+import java.util.List;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.work.ChangeType;
+import org.gradle.workers.WorkParameters;
+
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+
+/**
+ * The parameters of a {@link CompileDroolsAction}.
+ *
+ * @author Kevin Wimmer
+ */
+public interface CompileDroolsParameters extends WorkParameters {
+
+    /**
+     * The resource directories containing the {@link #getSources() sources}.
+     */
+    ConfigurableFileCollection getSourceDirectories();
+
+    ConfigurableFileCollection getSources();
+
+    ConfigurableFileCollection getClasspath();
+
+    DirectoryProperty getOutputDirectory();
+
+    /**
+     * The Kie JARs of upstream projects, which are linked against rather than rebuilt.
+     */
+    ConfigurableFileCollection getUpstreamKjars();
+
+    DirectoryProperty getStateDirectory();
+
+    DirectoryProperty getTemporaryDirectory();
+
+    Property<String> getReleaseId();
+
+    Property<String> getParentReleaseId();
+
+    MapProperty<String, List<String>> getDependencies();
+
+    /**
+     * The content of the {@code kmodule.xml} file the KieModule is built from.
+     */
+    Property<String> getKmoduleXml();
+
+    /**
+     * The maximum number of independent KieBases compiled concurrently.
+     */
+    Property<Integer> getMaxParallelKieBases();
+
+    /**
+     * The number of rules above which a package is compiled in shards of at most that many rules, or
+     * {@code 0} to disable sharding.
+     */
+    Property<Integer> getMaxRulesPerShard();
+
+    /**
+     * The directory in which the DRL converted from decision tables is cached.
+     */
+    DirectoryProperty getDecisionTableCacheDirectory();
+
+    /**
+     * The number of days after which unused entries of the decision table cache are deleted.
+     */
+    Property<Integer> getDecisionTableCacheRetentionDays();
+
+    /**
+     * The service caching compiler class loaders across builds. Only available without worker isolation.
+     */
+    Property<DroolsCompilerService> getCompilerService();
+
+    /**
+     * Whether to build the executable model rather than a DRL based KieModule.
+     */
+    Property<Boolean> getExecutableModel();
+
+    /**
+     * Whether to package serialized snapshots of the fully built KieBases.
+     */
+    Property<Boolean> getKieBaseSnapshots();
+
+    /**
+     * Whether {@link #getChanges()} describes the changes made since the previous build, in which case
+     * only the affected rule packages are recompiled.
+     */
+    Property<Boolean> getIncremental();
+
+    /**
+     * The changed source files, relative to the source directory.
+     */
+    MapProperty<String, ChangeType> getChanges();
+
+    /**
+     * The Kie JAR to assemble directly from the built KieModule, if any.
+     */
+    RegularFileProperty getArchiveFile();
+
+    /**
+     * The directories whose files are added to the Kie JAR alongside the built KieModule.
+     */
+    ConfigurableFileCollection getArchiveDirectories();
+
+    Property<Integer> getArchiveCompressionLevel();
+
+    /**
+     * The directory to which the compile report is written.
+     */
+    DirectoryProperty getReportDirectory();
+}
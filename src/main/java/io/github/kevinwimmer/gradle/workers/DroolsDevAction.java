@@ -0,0 +1,273 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.workers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkAction;
+import org.kie.api.KieServices;
+import org.kie.api.io.ResourceType;
+import org.mvel2.MVEL;
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ParserContext;
+
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+import io.github.kevinwimmer.kie.builder.DevKieContainer;
+
+/**
+ * Runs the continuous development mode on behalf of the {@code DroolsDev} task: builds the KieModule in
+ * memory, then watches the source directories and reloads changed Drools source files into the warm
+ * container, and fires the rules against fact files dropped into the facts directory. Runs until the
+ * build is cancelled.
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class DroolsDevAction implements WorkAction<DroolsDevParameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(DroolsDevAction.class);
+
+    /**
+     * The extension of fact files: each non-blank line not starting with {@code #} is an MVEL expression
+     * creating a fact, e.g. {@code new org.example.Order(42, 100.0)}.
+     */
+    public static final String FACTS_FILE_EXTENSION = ".mvel";
+    public static final String RESULT_FILE_EXTENSION = ".result";
+
+    /**
+     * How long to wait for further changes after a change, so that saving several files reloads once.
+     */
+    private static final long DEBOUNCE_MILLIS = 50;
+
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+
+    @Override
+    public void execute() {
+        DroolsDevParameters parameters = getParameters();
+        DroolsCompilerService compilerService = parameters.getCompilerService().get();
+        ClassLoader classLoader = compilerService.acquireClassLoader(parameters.getClasspath().getFiles());
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        List<Path> sourceDirs = parameters.getSourceDirectories()
+                .getFiles()
+                .stream()
+                .map(File::toPath)
+                .filter(Files::isDirectory)
+                .toList();
+        Path factsDir = parameters.getFactsDirectory().get().getAsFile().toPath();
+        KieServices ks = compilerService.getKieServices();
+        String[] coordinates = parameters.getReleaseId().get().split(":", -1);
+        try (WatchService watcher = FileSystems.getDefault().newWatchService();
+                DevKieContainer container = new DevKieContainer(ks,
+                        ks.newReleaseId(coordinates[0], coordinates[1], coordinates[2] + "-dev"),
+                        parameters.getKmoduleXml().get(), classLoader)) {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            long start = System.nanoTime();
+            report(container.build(readSources(sourceDirs)), "Built", start);
+
+            Files.createDirectories(factsDir);
+            for (Path sourceDir : sourceDirs) {
+                register(watcher, sourceDir);
+            }
+            register(watcher, factsDir);
+            LOGGER.lifecycle("Watching {} for changes. Drop fact files (*{}) into {} to fire the rules. Cancel the build to stop.",
+                    sourceDirs, FACTS_FILE_EXTENSION, factsDir);
+            watch(watcher, container, sourceDirs, factsDir, classLoader);
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.lifecycle("Stopped watching {}.", sourceDirs);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to watch directories: " + sourceDirs, e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            compilerService.releaseClassLoader(classLoader);
+        }
+    }
+
+    private void watch(WatchService watcher, DevKieContainer container, List<Path> sourceDirs, Path factsDir,
+            ClassLoader classLoader) throws InterruptedException, IOException {
+        while (true) {
+            Set<Path> changedSources = new LinkedHashSet<>();
+            Set<Path> factFiles = new LinkedHashSet<>();
+            WatchKey key = watcher.take();
+            do {
+                Path dir = watchedDirs.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Path path = dir.resolve((Path) event.context());
+                    if (Files.isDirectory(path)) {
+                        if (sourceDirOf(sourceDirs, path) != null) {
+                            register(watcher, path);
+                            try (Stream<Path> files = Files.walk(path)) {
+                                files.filter(Files::isRegularFile).forEach(changedSources::add);
+                            }
+                        }
+                    } else if (path.startsWith(factsDir)) {
+                        if (path.getFileName().toString().endsWith(FACTS_FILE_EXTENSION) && Files.isRegularFile(path)) {
+                            factFiles.add(path);
+                        }
+                    } else if (isTextSource(path)) {
+                        changedSources.add(path);
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirs.remove(key);
+                }
+                key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+            } while (key != null);
+
+            if (!changedSources.isEmpty()) {
+                reload(container, sourceDirs, changedSources);
+            }
+            for (Path factFile : factFiles) {
+                fire(container, factFile, classLoader);
+            }
+        }
+    }
+
+    private void reload(DevKieContainer container, List<Path> sourceDirs, Set<Path> changedSources) {
+        long start = System.nanoTime();
+        Map<String, String> changed = new LinkedHashMap<>();
+        List<String> removed = new ArrayList<>();
+        for (Path path : changedSources) {
+            String source = relativePath(sourceDirOf(sourceDirs, path), path);
+            if (Files.isRegularFile(path)) {
+                changed.put(source, readString(path));
+            } else {
+                removed.add(source);
+            }
+        }
+        report(container.reload(changed, removed, () -> readSources(sourceDirs)),
+                String.format("Reloaded %d file(s)", changedSources.size()), start);
+    }
+
+    private void fire(DevKieContainer container, Path factFile, ClassLoader classLoader) {
+        long start = System.nanoTime();
+        List<String> lines = new ArrayList<>();
+        try {
+            List<Object> facts = readFacts(factFile, classLoader);
+            List<String> fired = container.fire(getParameters().getKieSession().getOrNull(), facts);
+            lines.add(String.format("Inserted %d fact(s), fired %d rule(s) in %d ms:",
+                    facts.size(), fired.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            fired.forEach(rule -> lines.add("  " + rule));
+        } catch (RuntimeException e) {
+            lines.add("Failed to fire rules: " + e);
+        }
+        lines.forEach(LOGGER::lifecycle);
+        Path resultFile = factFile.resolveSibling(factFile.getFileName() + RESULT_FILE_EXTENSION);
+        try {
+            Files.write(resultFile, lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write file: " + resultFile, e);
+        }
+    }
+
+    private List<Object> readFacts(Path factFile, ClassLoader classLoader) {
+        ParserConfiguration configuration = new ParserConfiguration();
+        configuration.setClassLoader(classLoader);
+        List<Object> facts = new ArrayList<>();
+        for (String line : readString(factFile).split("\\R")) {
+            String expression = line.strip();
+            if (!expression.isEmpty() && !expression.startsWith("#")) {
+                Serializable compiled = MVEL.compileExpression(expression, new ParserContext(configuration));
+                facts.add(MVEL.executeExpression(compiled));
+            }
+        }
+        return facts;
+    }
+
+    private void report(List<String> errors, String action, long start) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (errors.isEmpty()) {
+            LOGGER.lifecycle("{} in {} ms, KieBase updated.", action, millis);
+        } else {
+            errors.forEach(LOGGER::error);
+            LOGGER.lifecycle("{} in {} ms with {} error(s), KieBase not updated.", action, millis, errors.size());
+        }
+    }
+
+    private void register(WatchService watcher, Path dir) throws IOException {
+        try (Stream<Path> dirs = Files.walk(dir)) {
+            for (Path path : dirs.filter(Files::isDirectory).toList()) {
+                watchedDirs.put(path.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), path);
+            }
+        }
+    }
+
+    private Map<String, String> readSources(List<Path> sourceDirs) {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (Path sourceDir : sourceDirs) {
+            try (Stream<Path> files = Files.walk(sourceDir)) {
+                files.filter(Files::isRegularFile)
+                        .filter(this::isTextSource)
+                        .forEach(path -> sources.put(relativePath(sourceDir, path), readString(path)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read directory: " + sourceDir, e);
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Returns the source directory containing the given path, or {@code null} if there is none.
+     */
+    private Path sourceDirOf(List<Path> sourceDirs, Path path) {
+        return sourceDirs.stream().filter(path::startsWith).findFirst().orElse(null);
+    }
+
+    /**
+     * Whether the given file is a textual Drools source file (i.e. any but a spreadsheet decision table).
+     */
+    private boolean isTextSource(Path file) {
+        ResourceType type = ResourceType.determineResourceType(file.getFileName().toString());
+        return type != null && type != ResourceType.DTABLE;
+    }
+
+    private String relativePath(Path dir, Path file) {
+        return dir.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    private String readString(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read file: " + file, e);
+        }
+    }
+}
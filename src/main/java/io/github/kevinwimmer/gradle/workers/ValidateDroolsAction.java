@@ -0,0 +1,124 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.kevinwimmer.gradle.workers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkAction;
+import org.kie.api.KieServices;
+
+import io.github.kevinwimmer.gradle.services.DroolsCompilerService;
+import io.github.kevinwimmer.kie.builder.DecisionTableCache;
+import io.github.kevinwimmer.kie.builder.DrlValidator;
+
+/**
+ * Validates the project DRL files on behalf of the {@code ValidateDrools} task, without generating any
+ * code or KieModule metadata.
+ *
+ * @author Kevin Wimmer
+ */
+public abstract class ValidateDroolsAction implements WorkAction<ValidateDroolsParameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(ValidateDroolsAction.class);
+
+    @Override
+    public void execute() {
+        ValidateDroolsParameters parameters = getParameters();
+        Set<File> classpath = parameters.getClasspath().getFiles();
+        DroolsCompilerService compilerService = parameters.getCompilerService().get();
+        ClassLoader classLoader = compilerService.acquireClassLoader(classpath);
+        try {
+            long start = System.nanoTime();
+            List<File> sourceDirs = List.copyOf(parameters.getSourceDirectories().getFiles());
+            Map<String, byte[]> contents = new LinkedHashMap<>();
+            for (File file : parameters.getSources()) {
+                contents.put(relativePath(sourceDirs, file), readBytes(file));
+            }
+            Map<String, String> sources = new LinkedHashMap<>();
+            contents.forEach((source, content) -> {
+                if (!DecisionTableCache.isDecisionTable(source)) {
+                    sources.put(source, new String(content, StandardCharsets.UTF_8));
+                }
+            });
+            if (contents.keySet().stream().anyMatch(DecisionTableCache::isDecisionTable)) {
+                DecisionTableCache cache = new DecisionTableCache(
+                        parameters.getDecisionTableCacheDirectory().get().getAsFile(), KieServices.Factory.get().getResources());
+                int retentionDays = parameters.getDecisionTableCacheRetentionDays().get();
+                int deleted = cache.deleteUnusedEntries(Duration.ofDays(retentionDays));
+                if (deleted > 0) {
+                    LOGGER.info("Deleted {} decision table cache entries not used for {} days.", deleted, retentionDays);
+                }
+                cache.convert(contents).forEach((source, drl) -> sources.put(DecisionTableCache.toDrlSource(source), drl));
+            }
+            List<DrlValidator.Problem> problems = new DrlValidator(classLoader).validate(sources);
+            LOGGER.info("Validated {} Drools source files in {} ms.", contents.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            File reportFile = parameters.getReportFile().get().getAsFile();
+            List<String> lines = new ArrayList<>();
+            problems.forEach(problem -> lines.add(problem.toString()));
+            writeLines(reportFile, lines);
+            if (!problems.isEmpty()) {
+                problems.forEach(problem -> LOGGER.error(problem.toString()));
+                throw new GradleException(String.format("DRL validation failed with %d problem(s), see %s", problems.size(), reportFile));
+            }
+        } finally {
+            compilerService.releaseClassLoader(classLoader);
+        }
+    }
+
+    /**
+     * Returns the path of the given source file relative to the source directory containing it.
+     */
+    private String relativePath(List<File> dirs, File file) {
+        for (File dir : dirs) {
+            if (file.toPath().startsWith(dir.toPath())) {
+                return dir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+            }
+        }
+        throw new GradleException("Source file " + file + " is not located in any of the source directories " + dirs);
+    }
+
+    private byte[] readBytes(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read file: " + file, e);
+        }
+    }
+
+    private void writeLines(File file, List<String> lines) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write file: " + file, e);
+        }
+    }
+}
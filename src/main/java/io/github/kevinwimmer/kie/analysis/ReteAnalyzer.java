@@ -0,0 +1,228 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.drools.core.impl.InternalRuleBase;
+import org.drools.core.reteoo.AccumulateNode;
+import org.drools.core.reteoo.AlphaNode;
+import org.drools.core.reteoo.BaseNode;
+import org.drools.core.reteoo.BetaNode;
+import org.drools.core.reteoo.EntryPointNode;
+import org.drools.core.reteoo.EvalConditionNode;
+import org.drools.core.reteoo.ExistsNode;
+import org.drools.core.reteoo.FromNode;
+import org.drools.core.reteoo.JoinNode;
+import org.drools.core.reteoo.LeftInputAdapterNode;
+import org.drools.core.reteoo.LeftTupleNode;
+import org.drools.core.reteoo.LeftTupleSink;
+import org.drools.core.reteoo.LeftTupleSource;
+import org.drools.core.reteoo.NotNode;
+import org.drools.core.reteoo.ObjectSink;
+import org.drools.core.reteoo.ObjectSource;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.drools.core.reteoo.TerminalNode;
+import org.kie.api.KieBase;
+
+/**
+ * Walks the Rete network of a KieBase, counting its nodes by kind and how widely they are shared
+ * between rules, measuring the join depth of each rule, and warning about constructs that are
+ * expensive at runtime:
+ * <ul>
+ *   <li>{@value #CROSS_PRODUCT}: a join without any constraint between the joined patterns, which
+ *   matches every combination of their facts;</li>
+ *   <li>{@value #UNINDEXED_JOIN}: a join whose constraints cannot be indexed (i.e. have no equality
+ *   constraint), so that each fact is compared with every fact on the other side;</li>
+ *   <li>{@value #HOT_SPOT}: a {@code from}, {@code accumulate} or {@code collect} evaluated after
+ *   several joins, i.e. once per combination of the joined facts.</li>
+ * </ul>
+ *
+ * @author Kevin Wimmer
+ */
+public class ReteAnalyzer {
+
+    public static final String CROSS_PRODUCT = "cross-product";
+    public static final String UNINDEXED_JOIN = "unindexed-join";
+    public static final String HOT_SPOT = "hot-spot";
+
+    /**
+     * The join depth above which a {@code from} or accumulate node is reported as a hot spot.
+     */
+    private static final int HOT_SPOT_JOIN_DEPTH = 2;
+
+    /**
+     * A warning about a node of the network.
+     */
+    public record Warning(String kind, String rule, int nodeId, String message) {
+
+        @Override
+        public String toString() {
+            return String.format("[%s] %s (node %d): %s", kind, rule, nodeId, message);
+        }
+    }
+
+    /**
+     * The analysis of a single KieBase.
+     *
+     * @param nodeCounts   the number of nodes of each kind
+     * @param nodes        the total number of nodes, excluding entry point nodes
+     * @param sharedNodes  the number of nodes used by more than one rule
+     * @param sharingRatio the average number of rules using each node
+     * @param joinDepths   the maximum number of beta nodes on the path of each rule
+     */
+    public record Analysis(String kieBase, Map<String, Integer> nodeCounts, int nodes, int sharedNodes,
+            double sharingRatio, Map<String, Integer> joinDepths, List<Warning> warnings) {
+
+        public long countWarnings(String kind) {
+            return warnings.stream().filter(warning -> warning.kind().equals(kind)).count();
+        }
+
+        public int getMaxJoinDepth() {
+            return joinDepths.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+    }
+
+    /**
+     * Analyzes the Rete network of the given KieBase.
+     */
+    public Analysis analyze(String kieBaseName, KieBase kieBase) {
+        Map<String, Integer> nodeCounts = new TreeMap<>();
+        Map<String, Integer> joinDepths = new TreeMap<>();
+        List<Warning> warnings = new ArrayList<>();
+        int nodes = 0;
+        int sharedNodes = 0;
+        long associations = 0;
+
+        Set<BaseNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<BaseNode> queue = new ArrayDeque<>(((InternalRuleBase) kieBase).getRete().getEntryPointNodes().values());
+        while (!queue.isEmpty()) {
+            BaseNode node = queue.poll();
+            if (!visited.add(node)) {
+                continue;
+            }
+            queue.addAll(getSinks(node));
+            if (node instanceof EntryPointNode) {
+                continue;
+            }
+
+            nodes++;
+            nodeCounts.merge(getKind(node), 1, Integer::sum);
+            if (node instanceof BetaNode) {
+                nodeCounts.merge("beta", 1, Integer::sum);
+            }
+            int rules = node.getAssociatedRules().length;
+            associations += rules;
+            if (rules > 1) {
+                sharedNodes++;
+            }
+
+            if (node instanceof TerminalNode terminal) {
+                joinDepths.merge(terminal.getRule().getName(), getJoinDepth(terminal), Math::max);
+            } else if (node instanceof JoinNode || node instanceof NotNode || node instanceof ExistsNode) {
+                Object[] constraints = ((BetaNode) node).getRawConstraints().getConstraints();
+                if (node instanceof JoinNode && constraints.length == 0) {
+                    warn(warnings, CROSS_PRODUCT, node, "joins patterns without any constraint between them");
+                } else if (constraints.length > 0 && !((BetaNode) node).getRawConstraints().isIndexed()) {
+                    warn(warnings, UNINDEXED_JOIN, node, "joins patterns without an indexable (equality) constraint");
+                }
+            }
+            if (node instanceof FromNode || node instanceof AccumulateNode) {
+                int depth = getJoinDepth((LeftTupleNode) node);
+                if (depth >= HOT_SPOT_JOIN_DEPTH) {
+                    warn(warnings, HOT_SPOT, node, String.format("%s is evaluated once per combination of %d joins",
+                            node instanceof FromNode ? "from" : "accumulate/collect", depth));
+                }
+            }
+        }
+        return new Analysis(kieBaseName, nodeCounts, nodes, sharedNodes, nodes == 0 ? 0 : (double) associations / nodes,
+                joinDepths, warnings);
+    }
+
+    private static void warn(List<Warning> warnings, String kind, BaseNode node, String message) {
+        Set<String> rules = new TreeSet<>();
+        for (var rule : node.getAssociatedRules()) {
+            rules.add(rule.getName());
+        }
+        rules.forEach(rule -> warnings.add(new Warning(kind, rule, node.getId(), message)));
+    }
+
+    /**
+     * Returns the number of beta nodes on the left input path of the given node.
+     */
+    private static int getJoinDepth(LeftTupleNode node) {
+        int depth = 0;
+        LeftTupleSource source = node.getLeftTupleSource();
+        while (source != null && !(source instanceof LeftInputAdapterNode)) {
+            if (source instanceof BetaNode) {
+                depth++;
+            }
+            source = source.getLeftTupleSource();
+        }
+        return depth;
+    }
+
+    private static String getKind(BaseNode node) {
+        if (node instanceof ObjectTypeNode) {
+            return "objectType";
+        } else if (node instanceof AlphaNode) {
+            return "alpha";
+        } else if (node instanceof LeftInputAdapterNode) {
+            return "leftInputAdapter";
+        } else if (node instanceof JoinNode) {
+            return "join";
+        } else if (node instanceof NotNode) {
+            return "not";
+        } else if (node instanceof ExistsNode) {
+            return "exists";
+        } else if (node instanceof AccumulateNode) {
+            return "accumulate";
+        } else if (node instanceof FromNode) {
+            return "from";
+        } else if (node instanceof EvalConditionNode) {
+            return "eval";
+        } else if (node instanceof TerminalNode) {
+            return "terminal";
+        }
+        return "other";
+    }
+
+    private static List<BaseNode> getSinks(BaseNode node) {
+        List<BaseNode> sinks = new ArrayList<>();
+        if (node instanceof EntryPointNode entryPoint) {
+            sinks.addAll(entryPoint.getObjectTypeNodes().values());
+        } else if (node instanceof ObjectSource source && source.getObjectSinkPropagator() != null) {
+            for (ObjectSink sink : source.getObjectSinkPropagator().getSinks()) {
+                sinks.add((BaseNode) sink);
+            }
+        }
+        if (node instanceof LeftTupleSource source && source.getSinkPropagator() != null) {
+            for (LeftTupleSink sink : source.getSinkPropagator().getSinks()) {
+                sinks.add((BaseNode) sink);
+            }
+        }
+        return sinks;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.benchmark;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.gradle.api.UncheckedIOException;
+import org.mvel2.MVEL;
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ParserContext;
+
+import io.github.kevinwimmer.kie.util.Json;
+
+/**
+ * A set of facts inserted into each session of a rule benchmark. Facts are either generated by an MVEL
+ * expression evaluated with the variable {@code i} bound to the index of each fact, or read from a CSV
+ * or JSON fixture: a CSV file has a header row of property names and one fact per row, a JSON file
+ * holds an array of objects whose members are property names. Properties are set through setters,
+ * converting values to the property type.
+ *
+ * @param name       the name of the dataset
+ * @param factType   the class name of the facts read from a fixture
+ * @param fixture    the CSV or JSON fixture, or {@code null} for generated facts
+ * @param generator  the MVEL expression generating each fact, or {@code null} for a fixture
+ * @param count      the number of facts generated
+ *
+ * @author Kevin Wimmer
+ */
+public record FactDataset(String name, String factType, File fixture, String generator, int count) implements Serializable {
+
+    /**
+     * Creates the facts of this dataset.
+     */
+    public List<Object> load(ClassLoader classLoader) {
+        if (fixture == null) {
+            return generate(classLoader);
+        }
+        Class<?> type;
+        try {
+            type = Class.forName(factType, true, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown fact type of dataset " + name + ": " + factType, e);
+        }
+        String content;
+        try {
+            content = Files.readString(fixture.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read fixture: " + fixture, e);
+        }
+        List<Map<String, Object>> records = fixture.getName().toLowerCase(Locale.ROOT).endsWith(".json")
+                ? Json.parseObjects(content)
+                : parseCsv(content);
+        List<Object> facts = new ArrayList<>();
+        records.forEach(properties -> facts.add(newFact(type, properties)));
+        return facts;
+    }
+
+    private List<Object> generate(ClassLoader classLoader) {
+        ParserConfiguration configuration = new ParserConfiguration();
+        configuration.setClassLoader(classLoader);
+        Serializable expression = MVEL.compileExpression(generator, new ParserContext(configuration));
+        Map<String, Object> variables = new HashMap<>();
+        List<Object> facts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            variables.put("i", i);
+            facts.add(MVEL.executeExpression(expression, variables));
+        }
+        return facts;
+    }
+
+    private Object newFact(Class<?> type, Map<String, Object> properties) {
+        try {
+            Object fact = type.getConstructor().newInstance();
+            Map<String, Method> setters = new HashMap<>();
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                if (descriptor.getWriteMethod() != null) {
+                    setters.put(descriptor.getName(), descriptor.getWriteMethod());
+                }
+            }
+            for (Map.Entry<String, Object> property : properties.entrySet()) {
+                Method setter = setters.get(property.getKey());
+                if (setter == null) {
+                    throw new IllegalArgumentException("No writable property " + property.getKey() + " in " + type.getName());
+                }
+                setter.invoke(fact, convert(property.getValue(), setter.getParameterTypes()[0]));
+            }
+            return fact;
+        } catch (ReflectiveOperationException | IntrospectionException e) {
+            throw new IllegalArgumentException("Unable to create a fact of type " + type.getName() + " for dataset " + name,
+                    e instanceof InvocationTargetException ? e.getCause() : e);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object convert(Object value, Class<?> type) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        String text = value.toString();
+        if (type == String.class) {
+            return text;
+        } else if (type == int.class || type == Integer.class) {
+            return new BigDecimal(text).intValueExact();
+        } else if (type == long.class || type == Long.class) {
+            return new BigDecimal(text).longValueExact();
+        } else if (type == double.class || type == Double.class) {
+            return Double.valueOf(text);
+        } else if (type == float.class || type == Float.class) {
+            return Float.valueOf(text);
+        } else if (type == short.class || type == Short.class) {
+            return Short.valueOf(text);
+        } else if (type == byte.class || type == Byte.class) {
+            return Byte.valueOf(text);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Boolean.valueOf(text);
+        } else if (type == char.class || type == Character.class) {
+            return text.charAt(0);
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(text);
+        } else if (type == BigInteger.class) {
+            return new BigInteger(text);
+        } else if (type.isEnum()) {
+            return Enum.valueOf((Class<Enum>) type, text);
+        } else if (type == LocalDate.class) {
+            return LocalDate.parse(text);
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(text);
+        } else if (type == LocalTime.class) {
+            return LocalTime.parse(text);
+        } else if (type == Instant.class) {
+            return Instant.parse(text);
+        }
+        throw new IllegalArgumentException("Unsupported property type: " + type.getName());
+    }
+
+    /**
+     * Parses CSV content with a header row, supporting quoted values with {@code ""} escapes.
+     */
+    static List<Map<String, Object>> parseCsv(String content) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < content.length() && content.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                row.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < content.length() && content.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                row.add(value.toString());
+                value.setLength(0);
+                rows.add(row);
+                row = new ArrayList<>();
+            } else {
+                value.append(c);
+            }
+        }
+        if (value.length() > 0 || !row.isEmpty()) {
+            row.add(value.toString());
+            rows.add(row);
+        }
+        rows.removeIf(r -> r.size() == 1 && r.get(0).isBlank());
+
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (List<String> values : rows.subList(Math.min(1, rows.size()), rows.size())) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            for (int column = 0; column < rows.get(0).size() && column < values.size(); column++) {
+                // empty values leave the property at its default
+                if (!values.get(column).isEmpty()) {
+                    properties.put(rows.get(0).get(column).strip(), values.get(column));
+                }
+            }
+            records.add(properties);
+        }
+        return records;
+    }
+}
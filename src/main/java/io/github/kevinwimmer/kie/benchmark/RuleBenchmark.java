@@ -0,0 +1,182 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+
+import io.github.kevinwimmer.kie.util.Json;
+
+/**
+ * Measures the execution of the rules of a {@link KieContainer}: each iteration inserts the same facts
+ * into a new session and fires all rules. Warm-up iterations are run first, so that the measured
+ * iterations reflect JIT-compiled rules.
+ *
+ * @author Kevin Wimmer
+ */
+public class RuleBenchmark {
+
+    private final KieContainer kieContainer;
+    private final String kieSessionName;
+    private final List<Object> facts;
+
+    /**
+     * @param kieContainer   the container whose rules are measured
+     * @param kieSessionName the name of the session to create, or {@code null} for the default session
+     * @param facts          the facts inserted into each session
+     */
+    public RuleBenchmark(KieContainer kieContainer, String kieSessionName, List<Object> facts) {
+        this.kieContainer = kieContainer;
+        this.kieSessionName = kieSessionName;
+        this.facts = facts;
+    }
+
+    /**
+     * The results of a benchmark. Latencies are in nanoseconds; throughput covers inserting the facts
+     * and firing the rules.
+     */
+    public record Result(long facts, long rulesFired, double factsPerSecond, long fireLatencyP50, long fireLatencyP90,
+            long fireLatencyP99, long fireLatencyMax, long allocatedBytesPerFire) {
+
+        /**
+         * Returns the metrics compared against a baseline, keyed by name, with whether a higher value
+         * is better.
+         */
+        public Map<String, Boolean> comparedMetrics() {
+            Map<String, Boolean> metrics = new LinkedHashMap<>();
+            metrics.put("factsPerSecond", true);
+            metrics.put("fireLatencyP50", false);
+            metrics.put("fireLatencyP99", false);
+            metrics.put("allocatedBytesPerFire", false);
+            return metrics;
+        }
+
+        public Map<String, Number> toMap() {
+            Map<String, Number> values = new LinkedHashMap<>();
+            values.put("facts", facts);
+            values.put("rulesFired", rulesFired);
+            values.put("factsPerSecond", factsPerSecond);
+            values.put("fireLatencyP50", fireLatencyP50);
+            values.put("fireLatencyP90", fireLatencyP90);
+            values.put("fireLatencyP99", fireLatencyP99);
+            values.put("fireLatencyMax", fireLatencyMax);
+            values.put("allocatedBytesPerFire", allocatedBytesPerFire);
+            return values;
+        }
+
+        public Properties toProperties() {
+            Properties properties = new Properties();
+            toMap().forEach((name, value) -> properties.setProperty(name, value.toString()));
+            return properties;
+        }
+
+        public static Result fromProperties(Properties properties) {
+            return new Result(
+                    Long.parseLong(properties.getProperty("facts", "0")),
+                    Long.parseLong(properties.getProperty("rulesFired", "0")),
+                    Double.parseDouble(properties.getProperty("factsPerSecond", "0")),
+                    Long.parseLong(properties.getProperty("fireLatencyP50", "0")),
+                    Long.parseLong(properties.getProperty("fireLatencyP90", "0")),
+                    Long.parseLong(properties.getProperty("fireLatencyP99", "0")),
+                    Long.parseLong(properties.getProperty("fireLatencyMax", "0")),
+                    Long.parseLong(properties.getProperty("allocatedBytesPerFire", "0")));
+        }
+
+        public String toJson() {
+            return Json.write(toMap());
+        }
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @throws IllegalStateException if the number of rules fired differs between iterations, in which
+     *         case the iterations do not measure the same work
+     */
+    public Result run(int warmupIterations, int iterations) {
+        long rulesFired = -1;
+        for (int i = 0; i < warmupIterations; i++) {
+            rulesFired = checkRulesFired(rulesFired, runIteration(new long[3]));
+        }
+        long[] fireNanos = new long[iterations];
+        long totalNanos = 0;
+        long allocatedBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long[] measurements = new long[3];
+            rulesFired = checkRulesFired(rulesFired, runIteration(measurements));
+            fireNanos[i] = measurements[0];
+            totalNanos += measurements[1];
+            allocatedBytes += measurements[2];
+        }
+        Arrays.sort(fireNanos);
+        return new Result(facts.size(), Math.max(rulesFired, 0),
+                totalNanos == 0 ? 0 : facts.size() * (double) iterations * 1_000_000_000L / totalNanos,
+                percentile(fireNanos, 50), percentile(fireNanos, 90), percentile(fireNanos, 99),
+                iterations == 0 ? 0 : fireNanos[iterations - 1],
+                iterations == 0 ? 0 : allocatedBytes / iterations);
+    }
+
+    /**
+     * Runs one iteration, storing the nanoseconds spent firing, the nanoseconds spent inserting and
+     * firing, and the bytes allocated while firing in the given array.
+     *
+     * @return the number of rules fired
+     */
+    private int runIteration(long[] measurements) {
+        KieSession session = kieSessionName == null ? kieContainer.newKieSession() : kieContainer.newKieSession(kieSessionName);
+        try {
+            long start = System.nanoTime();
+            facts.forEach(session::insert);
+            long allocatedBefore = allocatedBytes();
+            long fireStart = System.nanoTime();
+            int fired = session.fireAllRules();
+            long end = System.nanoTime();
+            measurements[0] = end - fireStart;
+            measurements[1] = end - start;
+            measurements[2] = allocatedBytes() - allocatedBefore;
+            return fired;
+        } finally {
+            session.dispose();
+        }
+    }
+
+    private static long checkRulesFired(long previous, long fired) {
+        if (previous >= 0 && previous != fired) {
+            throw new IllegalStateException(String.format(
+                    "Iterations fired %d and %d rules for the same facts, the rules do not behave deterministically", previous, fired));
+        }
+        return fired;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
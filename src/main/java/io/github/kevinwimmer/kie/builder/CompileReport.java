@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.gradle.api.UncheckedIOException;
+
+import io.github.kevinwimmer.kie.util.Json;
+
+/**
+ * Records the duration of each phase of a KieModule build, along with counts (e.g. rules, generated
+ * classes, bytes written) and the peak heap usage, and writes them as a JSON and an HTML report.
+ * <p>
+ *   The peak heap usage is the highest heap usage sampled every {@value #HEAP_SAMPLE_INTERVAL_MILLIS} ms
+ *   while the report is open. It is approximate, as peaks between samples are missed, and it covers the
+ *   whole JVM, so in a shared Gradle daemon it includes the concurrent work of other tasks. Unlike the
+ *   peak usage tracked by the memory pools, sampling does not reset any JVM-wide state, so concurrent
+ *   reports do not interfere with each other.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public class CompileReport implements AutoCloseable {
+
+    public static final String JSON_REPORT_FILE_NAME = "report.json";
+    public static final String HTML_REPORT_FILE_NAME = "report.html";
+
+    static final long HEAP_SAMPLE_INTERVAL_MILLIS = 20;
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private final long start = System.nanoTime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, Long> counts = new LinkedHashMap<>();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+    private final ScheduledExecutorService heapSampler;
+    private String mode = "full";
+
+    public CompileReport() {
+        sampleHeap();
+        heapSampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "drools-compile-report-heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heapSampler.scheduleAtFixedRate(this::sampleHeap, HEAP_SAMPLE_INTERVAL_MILLIS, HEAP_SAMPLE_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void sampleHeap() {
+        peakHeapBytes.accumulateAndGet(MEMORY.getHeapMemoryUsage().getUsed(), Math::max);
+    }
+
+    /**
+     * Runs the given phase, adding its duration to the report.
+     */
+    public <T> T time(String phase, Supplier<T> action) {
+        long phaseStart = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            phases.merge(phase, System.nanoTime() - phaseStart, Long::sum);
+        }
+    }
+
+    public void time(String phase, Runnable action) {
+        time(phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void count(String name, long value) {
+        counts.merge(name, value, Long::sum);
+    }
+
+    /**
+     * Sets the kind of build reported: {@code full}, {@code incremental} or {@code up-to-date}.
+     */
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Returns the highest heap usage of the JVM sampled so far.
+     */
+    public long getPeakHeapBytes() {
+        sampleHeap();
+        return peakHeapBytes.get();
+    }
+
+    /**
+     * Stops sampling the heap usage.
+     */
+    @Override
+    public void close() {
+        heapSampler.shutdownNow();
+    }
+
+    /**
+     * Writes the JSON and HTML reports into the given directory, and stops sampling the heap usage.
+     */
+    public void write(File dir) {
+        long total = toMillis(System.nanoTime() - start);
+        long peakHeap = getPeakHeapBytes();
+        close();
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("mode", mode);
+        json.put("totalMillis", total);
+        json.put("peakHeapBytes", peakHeap);
+        json.put("phaseMillis", millisByPhase());
+        json.put("counts", counts);
+
+        StringBuilder html = new StringBuilder("<!DOCTYPE html>\n<html>\n<head><meta charset=\"UTF-8\"><title>Drools Compile Report</title></head>\n<body>\n");
+        html.append("<h1>Drools Compile Report</h1>\n");
+        html.append("<p>Mode: ").append(mode).append(", total: ").append(total).append(" ms, peak heap (sampled, JVM-wide): ")
+                .append(peakHeap / (1024 * 1024)).append(" MB</p>\n");
+        appendHtmlTable(html, "Phase", "Duration (ms)", millisByPhase());
+        appendHtmlTable(html, "Count", "Value", counts);
+        html.append("</body>\n</html>\n");
+
+        try {
+            Files.createDirectories(dir.toPath());
+            Files.writeString(new File(dir, JSON_REPORT_FILE_NAME).toPath(), Json.write(json));
+            Files.writeString(new File(dir, HTML_REPORT_FILE_NAME).toPath(), html);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write report to: " + dir, e);
+        }
+    }
+
+    private Map<String, Long> millisByPhase() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        phases.forEach((phase, nanos) -> millis.put(phase, toMillis(nanos)));
+        return millis;
+    }
+
+    private static void appendHtmlTable(StringBuilder html, String keyHeader, String valueHeader, Map<String, Long> values) {
+        html.append("<table>\n<tr><th>").append(keyHeader).append("</th><th>").append(valueHeader).append("</th></tr>\n");
+        values.forEach((key, value) -> html.append("<tr><td>").append(key).append("</td><td>").append(value).append("</td></tr>\n"));
+        html.append("</table>\n");
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
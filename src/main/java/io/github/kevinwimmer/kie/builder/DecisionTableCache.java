@@ -0,0 +1,203 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.drools.drl.extensions.DecisionTableFactory;
+import org.gradle.api.UncheckedIOException;
+import org.kie.api.io.KieResources;
+import org.kie.internal.builder.DecisionTableConfiguration;
+import org.kie.internal.builder.DecisionTableInputType;
+import org.kie.internal.builder.KnowledgeBuilderFactory;
+
+import io.github.kevinwimmer.kie.util.CacheCleanup;
+
+/**
+ * Converts spreadsheet decision tables ({@code .xls}, {@code .xlsx} and {@code .csv}) to DRL, caching
+ * the generated DRL on disk by a hash of the workbook, its {@code .properties} configuration and the
+ * Drools version. Unchanged workbooks reuse their cached DRL, and the remaining ones are converted in
+ * parallel.
+ *
+ * @author Kevin Wimmer
+ */
+public class DecisionTableCache {
+
+    private static final String PROPERTIES_SUFFIX = ".properties";
+    private static final String DRL_SUFFIX = ".drl";
+
+    private final Path cacheDir;
+    private final KieResources resources;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param cacheDir  the directory holding the cached DRL, which may be shared by several builds
+     * @param resources the factory of the resources handed to the Drools decision table compiler
+     */
+    public DecisionTableCache(File cacheDir, KieResources resources) {
+        this.cacheDir = cacheDir.toPath();
+        this.resources = resources;
+    }
+
+    /**
+     * Whether the given source is a spreadsheet decision table.
+     */
+    public static boolean isDecisionTable(String source) {
+        return getInputType(source) != null;
+    }
+
+    /**
+     * Returns the name under which the DRL converted from the given decision table is compiled.
+     */
+    public static String toDrlSource(String source) {
+        return source + DRL_SUFFIX;
+    }
+
+    /**
+     * Converts the decision tables among the given sources to DRL.
+     *
+     * @param sources the source contents, keyed by source path; a decision table is configured by the
+     *                source of the same path with a {@code .properties} suffix, if any
+     * @return the DRL of each decision table, keyed by the source path of the decision table
+     */
+    public Map<String, String> convert(Map<String, byte[]> sources) {
+        List<String> decisionTables = sources.keySet()
+                .stream()
+                .filter(DecisionTableCache::isDecisionTable)
+                .toList();
+        Map<String, String> drls = new LinkedHashMap<>();
+        decisionTables.parallelStream()
+                .map(source -> Map.entry(source, convert(source, sources.get(source), sources.get(source + PROPERTIES_SUFFIX))))
+                .toList()
+                .forEach(drl -> drls.put(drl.getKey(), drl.getValue()));
+        return drls;
+    }
+
+    /**
+     * Deletes the cached DRL that was not used within the given period, see {@link CacheCleanup}.
+     *
+     * @return the number of entries deleted
+     */
+    public int deleteUnusedEntries(Duration maxAge) {
+        return CacheCleanup.deleteUnusedEntries(cacheDir, maxAge);
+    }
+
+    /**
+     * Returns the number of decision tables whose DRL was read from the cache.
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of decision tables that were converted.
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    private String convert(String source, byte[] content, byte[] properties) {
+        Path cached = cacheDir.resolve(hash(content, properties) + DRL_SUFFIX);
+        try {
+            if (Files.isRegularFile(cached)) {
+                try {
+                    String drl = Files.readString(cached);
+                    Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+                    hits.incrementAndGet();
+                    return drl;
+                } catch (NoSuchFileException e) {
+                    // deleted by the cleanup of a concurrent build, convert it again
+                }
+            }
+
+            String drl = DecisionTableFactory.loadFromResource(resources.newByteArrayResource(content),
+                    createConfiguration(source, properties));
+            // write to a temporary file first, so that concurrent builds never read a partial entry
+            Files.createDirectories(cacheDir);
+            Path temp = Files.createTempFile(cacheDir, cached.getFileName().toString(), ".tmp");
+            Files.writeString(temp, drl);
+            Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            misses.incrementAndGet();
+            return drl;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to cache the DRL of decision table: " + source, e);
+        }
+    }
+
+    private DecisionTableConfiguration createConfiguration(String source, byte[] properties) {
+        DecisionTableConfiguration configuration = KnowledgeBuilderFactory.newDecisionTableConfiguration();
+        if (properties != null) {
+            Properties props = new Properties();
+            try {
+                props.load(new StringReader(new String(properties, StandardCharsets.ISO_8859_1)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read the configuration of decision table: " + source, e);
+            }
+            configuration.fromProperties(props);
+        }
+        configuration.setInputType(getInputType(source));
+        return configuration;
+    }
+
+    private static DecisionTableInputType getInputType(String source) {
+        String name = source.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".xlsx")) {
+            return DecisionTableInputType.XLSX;
+        } else if (name.endsWith(".xls")) {
+            return DecisionTableInputType.XLS;
+        } else if (name.endsWith(".csv")) {
+            return DecisionTableInputType.CSV;
+        }
+        return null;
+    }
+
+    private static String hash(byte[] content, byte[] properties) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Objects.toString(DecisionTableFactory.class.getPackage().getImplementationVersion(), "")
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(content);
+            if (properties != null) {
+                digest.update((byte) 0);
+                digest.update(properties);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
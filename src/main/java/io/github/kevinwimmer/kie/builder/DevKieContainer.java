@@ -0,0 +1,171 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import org.drools.compiler.kie.builder.impl.InternalKieBuilder;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.Results;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.builder.IncrementalResults;
+
+/**
+ * An in-memory KieModule and {@link KieContainer} kept warm for continuous development. Changed source
+ * files are recompiled incrementally and the container is updated to the new KieBase in place, without
+ * writing any class files.
+ *
+ * @author Kevin Wimmer
+ */
+public class DevKieContainer implements AutoCloseable {
+
+    private static final String RESOURCES_ROOT = "src/main/resources/";
+
+    private final KieServices ks;
+    private final ReleaseId releaseId;
+    private final String kmoduleXml;
+    private final ClassLoader classLoader;
+    private final Set<String> errors = new TreeSet<>();
+    private KieFileSystem kfs;
+    private KieBuilder kieBuilder;
+    private KieContainer kieContainer;
+
+    /**
+     * @param ks          the Kie services building the module
+     * @param releaseId   the coordinates under which the in-memory module is registered
+     * @param kmoduleXml  the content of the {@code kmodule.xml} file
+     * @param classLoader the class loader of the project classpath
+     */
+    public DevKieContainer(KieServices ks, ReleaseId releaseId, String kmoduleXml, ClassLoader classLoader) {
+        this.ks = ks;
+        this.releaseId = releaseId;
+        this.kmoduleXml = kmoduleXml;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Fully builds the module from the given sources and creates the container.
+     *
+     * @param sources the source contents, keyed by path relative to the resources directory
+     * @return the build errors; the container is only created if there are none
+     */
+    public List<String> build(Map<String, String> sources) {
+        kfs = ks.newKieFileSystem();
+        kfs.writeKModuleXML(kmoduleXml);
+        kfs.generateAndWritePomXML(releaseId);
+        sources.forEach((source, content) -> kfs.write(RESOURCES_ROOT + source, content));
+        kieBuilder = ks.newKieBuilder(kfs, classLoader).buildAll();
+
+        errors.clear();
+        kieBuilder.getResults().getMessages(Message.Level.ERROR).forEach(message -> errors.add(format(message)));
+        if (errors.isEmpty()) {
+            if (kieContainer != null) {
+                kieContainer.dispose();
+            }
+            kieContainer = ks.newKieContainer(releaseId, classLoader);
+        }
+        return new ArrayList<>(errors);
+    }
+
+    /**
+     * Recompiles the given changed and removed sources and updates the container to the new KieBase.
+     * Until the first successful build, this falls back to {@link #build(Map) full builds}.
+     *
+     * @param changed    the new contents of added or modified sources, keyed by relative path
+     * @param removed    the relative paths of removed sources
+     * @param allSources supplies all current sources, for full builds
+     * @return the errors left in the module; the container is only updated if there are none
+     */
+    public List<String> reload(Map<String, String> changed, Collection<String> removed,
+            Supplier<Map<String, String>> allSources) {
+        if (kieContainer == null) {
+            return build(allSources.get());
+        }
+        List<String> paths = new ArrayList<>();
+        changed.forEach((source, content) -> {
+            kfs.write(RESOURCES_ROOT + source, content);
+            paths.add(RESOURCES_ROOT + source);
+        });
+        removed.forEach(source -> {
+            kfs.delete(RESOURCES_ROOT + source);
+            paths.add(RESOURCES_ROOT + source);
+        });
+        IncrementalResults results = ((InternalKieBuilder) kieBuilder).createFileSet(paths.toArray(new String[0])).build();
+        results.getRemovedMessages().forEach(message -> errors.remove(format(message)));
+        results.getAddedMessages()
+                .stream()
+                .filter(message -> message.getLevel() == Message.Level.ERROR)
+                .forEach(message -> errors.add(format(message)));
+
+        if (errors.isEmpty()) {
+            Results update = kieContainer.updateToVersion(releaseId);
+            update.getMessages(Message.Level.ERROR).forEach(message -> errors.add(format(message)));
+        }
+        return new ArrayList<>(errors);
+    }
+
+    /**
+     * Inserts the given facts into a new session of the container and fires all rules.
+     *
+     * @param kieSessionName the name of the session to create, or {@code null} for the default session
+     * @return the names of the rules fired, in firing order
+     */
+    public List<String> fire(String kieSessionName, List<Object> facts) {
+        if (kieContainer == null) {
+            throw new IllegalStateException("The KieModule has not been built successfully");
+        }
+        List<String> fired = new ArrayList<>();
+        KieSession session = kieSessionName == null ? kieContainer.newKieSession() : kieContainer.newKieSession(kieSessionName);
+        try {
+            session.addEventListener(new DefaultAgendaEventListener() {
+                @Override
+                public void afterMatchFired(AfterMatchFiredEvent event) {
+                    fired.add(event.getMatch().getRule().getName());
+                }
+            });
+            facts.forEach(session::insert);
+            session.fireAllRules();
+        } finally {
+            session.dispose();
+        }
+        return fired;
+    }
+
+    @Override
+    public void close() {
+        if (kieContainer != null) {
+            kieContainer.dispose();
+        }
+        ks.getRepository().removeKieModule(releaseId);
+    }
+
+    private static String format(Message message) {
+        return String.format("%s:%d: %s", message.getPath(), message.getLine(), message.getText());
+    }
+}
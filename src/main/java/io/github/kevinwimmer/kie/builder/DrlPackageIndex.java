@@ -0,0 +1,311 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * Records which rule package each DRL source file belongs to, which other packages each package uses
+ * and which class files were generated for each package, so that a subsequent build can recompile only
+ * the packages affected by a change. A package uses another package when it imports from it or refers
+ * to one of its types by its qualified name; this may include packages that are not rule packages.
+ * <p>
+ *   Only DRL source files can be recompiled per package. The index therefore also records the packages
+ *   that contain any other kind of resource, such as the DRL converted from a decision table or a DSLR
+ *   file, so that a change affecting one of them can trigger a full build instead.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public class DrlPackageIndex {
+
+    private static final String INDEX_FILE_NAME = "drl-packages.properties";
+    private static final String VERSION_KEY = "version";
+    private static final String VERSION = "2";
+    private static final String SOURCE_PREFIX = "source.";
+    private static final String CLASSES_PREFIX = "classes.";
+    private static final String DECLARES_PREFIX = "declares.";
+    private static final String USES_PREFIX = "uses.";
+    private static final String RESOURCES_PREFIX = "resources.";
+
+    private static final Pattern PACKAGE_PATTERN = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;?", Pattern.MULTILINE);
+    private static final Pattern DECLARE_PATTERN = Pattern.compile("^\\s*declare\\s", Pattern.MULTILINE);
+    private static final Pattern FUNCTION_IMPORT_PATTERN = Pattern.compile("^\\s*import\\s+function\\s+([\\w.]+)\\.\\w+", Pattern.MULTILINE);
+    private static final Pattern QUALIFIED_NAME_PATTERN = Pattern.compile("(?<![\\w$.])((?:[a-z_]\\w*\\.)+)(?:[A-Z_$][\\w$]*|\\*)");
+
+    private final Map<String, String> packagesBySource = new HashMap<>();
+    private final Map<String, Set<String>> classesByPackage = new HashMap<>();
+    private final Set<String> declaringPackages = new HashSet<>();
+    private final Map<String, Set<String>> usesByPackage = new HashMap<>();
+    private final Set<String> resourcePackages = new HashSet<>();
+
+    /**
+     * Loads the index stored in the given directory.
+     *
+     * @param dir the directory holding the index
+     * @return the index, or {@code null} if no index has been stored yet, or it was stored in a format
+     *         that lacks information this version relies on
+     */
+    public static DrlPackageIndex load(File dir) {
+        File file = new File(dir, INDEX_FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (Reader reader = new FileReader(file)) {
+            props.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read file: " + file, e);
+        }
+        if (!VERSION.equals(props.getProperty(VERSION_KEY))) {
+            return null;
+        }
+        DrlPackageIndex index = new DrlPackageIndex();
+        for (String key : props.stringPropertyNames()) {
+            String value = props.getProperty(key);
+            if (key.startsWith(SOURCE_PREFIX)) {
+                index.packagesBySource.put(key.substring(SOURCE_PREFIX.length()), value);
+            } else if (key.startsWith(CLASSES_PREFIX)) {
+                index.classesByPackage.put(key.substring(CLASSES_PREFIX.length()),
+                        value.isEmpty() ? new HashSet<>() : new HashSet<>(Arrays.asList(value.split(","))));
+            } else if (key.startsWith(DECLARES_PREFIX)) {
+                index.declaringPackages.add(key.substring(DECLARES_PREFIX.length()));
+            } else if (key.startsWith(USES_PREFIX)) {
+                index.usesByPackage.put(key.substring(USES_PREFIX.length()), new HashSet<>(Arrays.asList(value.split(","))));
+            } else if (key.startsWith(RESOURCES_PREFIX)) {
+                index.resourcePackages.add(key.substring(RESOURCES_PREFIX.length()));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Stores this index in the given directory, replacing any previously stored index.
+     *
+     * @param dir the directory to hold the index
+     */
+    public void store(File dir) {
+        Properties props = new Properties();
+        props.setProperty(VERSION_KEY, VERSION);
+        packagesBySource.forEach((source, pkg) -> props.setProperty(SOURCE_PREFIX + source, pkg));
+        classesByPackage.forEach((pkg, classes) -> props.setProperty(CLASSES_PREFIX + pkg, String.join(",", new TreeSet<>(classes))));
+        declaringPackages.forEach(pkg -> props.setProperty(DECLARES_PREFIX + pkg, "true"));
+        usesByPackage.forEach((pkg, uses) -> props.setProperty(USES_PREFIX + pkg, String.join(",", new TreeSet<>(uses))));
+        resourcePackages.forEach(pkg -> props.setProperty(RESOURCES_PREFIX + pkg, "true"));
+        dir.mkdirs();
+        File file = new File(dir, INDEX_FILE_NAME);
+        try (Writer writer = new FileWriter(file)) {
+            props.store(writer, "Generated by gradle-kie-plugin");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write file: " + file, e);
+        }
+    }
+
+    public String getPackage(String source) {
+        return packagesBySource.get(source);
+    }
+
+    public Map<String, String> getPackagesBySource() {
+        return Collections.unmodifiableMap(packagesBySource);
+    }
+
+    public Set<String> getClasses(String pkg) {
+        return classesByPackage.getOrDefault(pkg, Collections.emptySet());
+    }
+
+    public Collection<Set<String>> getAllClasses() {
+        return Collections.unmodifiableCollection(classesByPackage.values());
+    }
+
+    public boolean declaresTypes(String pkg) {
+        return declaringPackages.contains(pkg);
+    }
+
+    /**
+     * Whether the given package contains resources other than DRL source files, which cannot be
+     * recompiled on their own.
+     */
+    public boolean containsOtherResources(String pkg) {
+        return resourcePackages.contains(pkg);
+    }
+
+    public Set<String> getUsedPackages(String pkg) {
+        return usesByPackage.getOrDefault(pkg, Collections.emptySet());
+    }
+
+    /**
+     * Returns the given rule packages together with the rule packages that must be recompiled with
+     * them: the packages using any of them, directly or transitively, since they were compiled against
+     * their functions and types, and the packages used by any of these, so that the compiler can
+     * resolve the functions, queries and types they define.
+     *
+     * @param packages the changed rule packages
+     * @return the rule packages to recompile
+     */
+    public Set<String> collectDependencyClosure(Set<String> packages) {
+        Set<String> closure = new TreeSet<>(packages);
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (Map.Entry<String, Set<String>> entry : usesByPackage.entrySet()) {
+                if (!Collections.disjoint(entry.getValue(), closure)) {
+                    grown |= closure.add(entry.getKey());
+                }
+            }
+        }
+        Set<String> rulePackages = new HashSet<>(packagesBySource.values());
+        Deque<String> pending = new ArrayDeque<>(closure);
+        while (!pending.isEmpty()) {
+            for (String used : getUsedPackages(pending.pop())) {
+                if (rulePackages.contains(used) && closure.add(used)) {
+                    pending.push(used);
+                }
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * Adds (or replaces) a DRL source file.
+     *
+     * @param source the source path, relative to the resources directory
+     * @param content the DRL content of the source file
+     * @return the rule package declared by the source file
+     */
+    public String putSource(String source, String content) {
+        String pkg = packageOf(source, content);
+        packagesBySource.put(source, pkg);
+        if (containsTypeDeclarations(content)) {
+            declaringPackages.add(pkg);
+        }
+        Set<String> uses = usedPackages(content);
+        uses.remove(pkg);
+        if (!uses.isEmpty()) {
+            usesByPackage.computeIfAbsent(pkg, key -> new HashSet<>()).addAll(uses);
+        }
+        return pkg;
+    }
+
+    /**
+     * Records a resource other than a DRL source file, e.g. the DRL converted from a decision table.
+     *
+     * @param source the source path, relative to the resources directory
+     * @param content the content of the resource, which declares its package if it is DRL-like
+     * @return the rule package the resource belongs to
+     */
+    public String putResource(String source, String content) {
+        String pkg = packageOf(source, content);
+        resourcePackages.add(pkg);
+        return pkg;
+    }
+
+    public void removeSource(String source) {
+        packagesBySource.remove(source);
+    }
+
+    /**
+     * Replaces the generated class files recorded for the given package.
+     *
+     * @param pkg the rule package
+     * @param classes the class file paths, relative to the output directory
+     */
+    public void putClasses(String pkg, Set<String> classes) {
+        if (classes.isEmpty()) {
+            classesByPackage.remove(pkg);
+        } else {
+            classesByPackage.put(pkg, new HashSet<>(classes));
+        }
+    }
+
+    /**
+     * Removes the recorded class files, type declarations and used packages of the given package.
+     *
+     * @param pkg the rule package
+     */
+    public void clearPackage(String pkg) {
+        classesByPackage.remove(pkg);
+        declaringPackages.remove(pkg);
+        usesByPackage.remove(pkg);
+    }
+
+    /**
+     * Returns the package of the given class file path, e.g. {@code org.example} for
+     * {@code org/example/Rule_Foo.class}.
+     */
+    public static String packageOfClassFile(String classFile) {
+        int index = classFile.lastIndexOf('/');
+        return index < 0 ? "" : classFile.substring(0, index).replace('/', '.');
+    }
+
+    /**
+     * Returns the package of the given fully qualified class name.
+     */
+    public static String packageOfClass(String className) {
+        int index = className.lastIndexOf('.');
+        return index < 0 ? "" : className.substring(0, index);
+    }
+
+    /**
+     * Returns the rule package declared by the given DRL content, falling back to the package implied
+     * by the source file's location when the DRL does not declare one.
+     */
+    public static String packageOf(String source, String content) {
+        Matcher matcher = PACKAGE_PATTERN.matcher(content);
+        return matcher.find() ? matcher.group(1) : packageOfClassFile(source);
+    }
+
+    public static boolean containsTypeDeclarations(String content) {
+        return DECLARE_PATTERN.matcher(content).find();
+    }
+
+    /**
+     * Returns the packages the given DRL content imports functions from or refers to by qualified names,
+     * e.g. {@code org.example} for {@code import org.example.Order;} or {@code org.example.Order()}.
+     */
+    public static Set<String> usedPackages(String content) {
+        Set<String> packages = new HashSet<>();
+        Matcher functions = FUNCTION_IMPORT_PATTERN.matcher(content);
+        while (functions.find()) {
+            packages.add(functions.group(1));
+        }
+        Matcher names = QUALIFIED_NAME_PATTERN.matcher(content);
+        while (names.find()) {
+            String prefix = names.group(1);
+            packages.add(prefix.substring(0, prefix.length() - 1));
+        }
+        return packages;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.drools.drl.ast.descr.AnnotationDescr;
+import org.drools.drl.ast.descr.PackageDescr;
+import org.drools.drl.ast.descr.QueryDescr;
+import org.drools.drl.ast.descr.RuleDescr;
+import org.drools.drl.parser.DrlParser;
+import org.drools.drl.parser.DroolsParserException;
+import org.kie.internal.builder.conf.LanguageLevelOption;
+
+/**
+ * Splits the rules of oversized DRL packages into shards that can be compiled independently.
+ * <p>
+ *   Each shard of a package contains every DRL file of the package, with the lines of all rules that
+ *   belong to other shards (including their annotations) blanked out. Everything else (imports, globals,
+ *   functions, queries and type declarations) is kept in every shard, rules are kept in the same shard as
+ *   the rules they extend, and line numbers are preserved so that compiler errors still point at the
+ *   original source. Shards also need the definitions of other packages (e.g. imported functions and
+ *   declared types), which {@link Result#definitions()} provides with all rules and queries blanked out.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public class DrlSharder {
+
+    private final int maxRulesPerShard;
+
+    /**
+     * @param maxRulesPerShard the number of rules above which a package is sharded, and the maximum
+     *                         number of rules per shard
+     */
+    public DrlSharder(int maxRulesPerShard) {
+        this.maxRulesPerShard = maxRulesPerShard;
+    }
+
+    /**
+     * The result of sharding a set of DRL sources.
+     *
+     * @param packages    the shards of each oversized package, each shard holding the DRL content of the
+     *                    package's sources keyed by source path
+     * @param definitions the DRL content of every source with all rules and queries blanked out, keyed by
+     *                    source path
+     */
+    public record Result(Map<String, List<Map<String, String>>> packages, Map<String, String> definitions) {
+
+        /**
+         * Returns whether no package was sharded.
+         */
+        public boolean isEmpty() {
+            return packages.isEmpty();
+        }
+    }
+
+    private record RuleLines(String source, int firstLine, int lastLine) {
+    }
+
+    private record ParsedDrl(String source, String[] lines, PackageDescr pkg) {
+    }
+
+    /**
+     * Shards the packages of the given DRL sources that contain more than the maximum number of rules.
+     * Sources that cannot be parsed are never sharded, so that the full build reports their errors.
+     *
+     * @param sources the DRL content, keyed by source path
+     * @return the shards of each oversized package, along with the definitions of all sources
+     */
+    public Result shard(Map<String, String> sources) {
+        List<ParsedDrl> parsed = sources.entrySet()
+                .parallelStream()
+                .map(source -> parse(source.getKey(), source.getValue()))
+                .toList();
+        if (parsed.stream().anyMatch(drl -> drl.pkg() == null)) {
+            return new Result(Collections.emptyMap(), Collections.emptyMap());
+        }
+
+        Map<String, List<ParsedDrl>> sourcesByPackage = new LinkedHashMap<>();
+        parsed.forEach(drl -> sourcesByPackage
+                .computeIfAbsent(Objects.toString(drl.pkg().getName(), ""), pkg -> new ArrayList<>())
+                .add(drl));
+
+        Map<String, List<Map<String, String>>> shards = new LinkedHashMap<>();
+        sourcesByPackage.forEach((pkg, drls) -> {
+            List<List<RuleLines>> groups = groupRules(drls);
+            if (groups.stream().mapToInt(List::size).sum() > maxRulesPerShard) {
+                shards.put(pkg, shardPackage(drls, groups));
+            }
+        });
+        if (shards.isEmpty()) {
+            return new Result(shards, Collections.emptyMap());
+        }
+
+        Map<String, String> definitions = new LinkedHashMap<>();
+        for (ParsedDrl drl : parsed) {
+            definitions.put(drl.source(), blankLines(drl.lines(), drl.pkg().getRules()
+                    .stream()
+                    .map(rule -> toRuleLines(drl, rule))
+                    .toList()));
+        }
+        return new Result(shards, definitions);
+    }
+
+    /**
+     * Groups the rules (but not the queries) of a package, so that each rule is in the same group as
+     * the rules it extends. Groups are ordered by their first rule.
+     */
+    private List<List<RuleLines>> groupRules(List<ParsedDrl> drls) {
+        Map<String, String> parents = new HashMap<>();
+        for (ParsedDrl drl : drls) {
+            for (RuleDescr rule : drl.pkg().getRules()) {
+                if (!(rule instanceof QueryDescr)) {
+                    parents.put(rule.getName(), rule.getParentName());
+                }
+            }
+        }
+        Map<String, List<RuleLines>> groups = new LinkedHashMap<>();
+        for (ParsedDrl drl : drls) {
+            for (RuleDescr rule : drl.pkg().getRules()) {
+                if (!(rule instanceof QueryDescr)) {
+                    groups.computeIfAbsent(rootOf(rule.getName(), parents), root -> new ArrayList<>()).add(toRuleLines(drl, rule));
+                }
+            }
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Returns the rule at the top of the {@code extends} chain of the given rule within its package.
+     */
+    private String rootOf(String rule, Map<String, String> parents) {
+        String root = rule;
+        for (int depth = 0; depth < parents.size() && parents.get(root) != null && parents.containsKey(parents.get(root)); depth++) {
+            root = parents.get(root);
+        }
+        return root;
+    }
+
+    private List<Map<String, String>> shardPackage(List<ParsedDrl> drls, List<List<RuleLines>> groups) {
+        List<List<RuleLines>> shards = new ArrayList<>();
+        List<RuleLines> current = new ArrayList<>();
+        for (List<RuleLines> group : groups) {
+            if (!current.isEmpty() && current.size() + group.size() > maxRulesPerShard) {
+                shards.add(current);
+                current = new ArrayList<>();
+            }
+            current.addAll(group);
+        }
+        shards.add(current);
+
+        List<Map<String, String>> contents = new ArrayList<>();
+        for (List<RuleLines> shard : shards) {
+            Map<String, List<RuleLines>> excluded = shards.stream()
+                    .filter(other -> other != shard)
+                    .flatMap(List::stream)
+                    .collect(Collectors.groupingBy(RuleLines::source));
+            Map<String, String> shardContents = new LinkedHashMap<>();
+            for (ParsedDrl drl : drls) {
+                shardContents.put(drl.source(), blankLines(drl.lines(), excluded.getOrDefault(drl.source(), List.of())));
+            }
+            contents.add(shardContents);
+        }
+        return contents;
+    }
+
+    /**
+     * Returns the lines of the given rule, starting at its first annotation.
+     */
+    private RuleLines toRuleLines(ParsedDrl drl, RuleDescr rule) {
+        int firstLine = rule.getLine();
+        for (AnnotationDescr annotation : rule.getAnnotations()) {
+            if (annotation.getLine() > 0) {
+                firstLine = Math.min(firstLine, annotation.getLine());
+            }
+        }
+        // annotations may not carry their location, in which case they are found by looking upwards
+        String[] lines = drl.lines();
+        while (firstLine > 1 && firstLine - 2 < lines.length && lines[firstLine - 2].trim().startsWith("@")) {
+            firstLine--;
+        }
+        return new RuleLines(drl.source(), firstLine, Math.max(rule.getLine(), rule.getEndLine()));
+    }
+
+    private String blankLines(String[] original, List<RuleLines> rules) {
+        String[] lines = original.clone();
+        for (RuleLines rule : rules) {
+            for (int line = rule.firstLine(); line <= rule.lastLine() && line <= lines.length; line++) {
+                lines[line - 1] = "";
+            }
+        }
+        return String.join("\n", lines);
+    }
+
+    private ParsedDrl parse(String source, String content) {
+        DrlParser parser = new DrlParser(LanguageLevelOption.DRL6);
+        String[] lines = content.split("\n", -1);
+        try {
+            PackageDescr pkg = parser.parse(false, content);
+            return new ParsedDrl(source, lines, parser.hasErrors() ? null : pkg);
+        } catch (DroolsParserException e) {
+            return new ParsedDrl(source, lines, null);
+        }
+    }
+}
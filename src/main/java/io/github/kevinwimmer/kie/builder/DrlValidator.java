@@ -0,0 +1,431 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.lang.model.SourceVersion;
+
+import org.drools.drl.ast.descr.AccumulateDescr;
+import org.drools.drl.ast.descr.AtomicExprDescr;
+import org.drools.drl.ast.descr.BaseDescr;
+import org.drools.drl.ast.descr.BindingDescr;
+import org.drools.drl.ast.descr.CollectDescr;
+import org.drools.drl.ast.descr.ConditionalElementDescr;
+import org.drools.drl.ast.descr.ConstraintConnectiveDescr;
+import org.drools.drl.ast.descr.ExprConstraintDescr;
+import org.drools.drl.ast.descr.GlobalDescr;
+import org.drools.drl.ast.descr.ImportDescr;
+import org.drools.drl.ast.descr.PackageDescr;
+import org.drools.drl.ast.descr.PatternDescr;
+import org.drools.drl.ast.descr.QueryDescr;
+import org.drools.drl.ast.descr.RelationalExprDescr;
+import org.drools.drl.ast.descr.RuleDescr;
+import org.drools.drl.ast.descr.TypeDeclarationDescr;
+import org.drools.drl.parser.DrlExprParser;
+import org.drools.drl.parser.DrlParser;
+import org.drools.drl.parser.DroolsError;
+import org.drools.drl.parser.DroolsParserException;
+import org.drools.drl.parser.lang.dsl.DSLMapping;
+import org.drools.drl.parser.lang.dsl.DSLTokenizedMappingFile;
+import org.drools.drl.parser.lang.dsl.DefaultExpander;
+import org.drools.drl.parser.lang.dsl.DefaultExpanderResolver;
+import org.drools.util.ClassTypeResolver;
+import org.kie.internal.builder.conf.LanguageLevelOption;
+
+/**
+ * Validates DRL sources without generating any code: each source is parsed, and its imports, the object
+ * types of the rule patterns, including those nested in {@code not}, {@code exists}, {@code forall},
+ * {@code accumulate} and {@code collect}, and the fields their constraints access are resolved against
+ * the declared types and the given class loader. Sources are parsed and resolved in parallel.
+ * <p>
+ *   DSLR sources are expanded with all DSL sources before they are parsed. Decision tables must be
+ *   converted to DRL by the caller.
+ * </p>
+ * <p>
+ *   A field is resolved from the first identifier of each operand of a constraint, e.g. {@code address}
+ *   for {@code address.city == "Vienna"}, which must be a getter, a public field or a method without
+ *   parameters of the object type. Operands starting with a variable, a global, a class name or a method
+ *   call are skipped, as are the fields of declared types extending another type. This catches syntax
+ *   errors, unknown fact types and misspelled fields, but not type errors within constraints or errors
+ *   within consequences, which only the full Drools build detects.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public class DrlValidator {
+
+    private static final String JAVA_LANG_IMPORT = "java.lang.*";
+
+    private final ClassLoader classLoader;
+
+    public DrlValidator(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * A problem found in a DRL source.
+     *
+     * @param source the source path
+     * @param line the line of the problem, or {@code 0} if unknown
+     * @param message the description of the problem
+     */
+    public record Problem(String source, int line, String message) {
+
+        @Override
+        public String toString() {
+            return source + ":" + line + ": " + message;
+        }
+    }
+
+    private record ParsedDrl(String source, PackageDescr pkg, List<Problem> problems) {
+    }
+
+    /**
+     * Validates the given DRL and DSLR sources.
+     *
+     * @param sources the source contents, keyed by source path; DSL sources are used to expand the DSLR
+     *                sources, any other sources are ignored
+     * @return the problems found, ordered by source path and line
+     */
+    public List<Problem> validate(Map<String, String> sources) {
+        List<Problem> dslProblems = new ArrayList<>();
+        List<DSLMapping> dslMappings = new ArrayList<>();
+        sources.forEach((source, content) -> {
+            if (isDsl(source)) {
+                DSLTokenizedMappingFile file = new DSLTokenizedMappingFile();
+                try {
+                    if (file.parseAndLoad(new StringReader(content))) {
+                        dslMappings.add(file.getMapping());
+                    } else {
+                        dslProblems.add(new Problem(source, 0, "Unable to parse DSL"));
+                    }
+                } catch (IOException e) {
+                    dslProblems.add(new Problem(source, 0, "Unable to parse DSL: " + e.getMessage()));
+                }
+            }
+        });
+        List<ParsedDrl> parsed = sources.entrySet()
+                .parallelStream()
+                .filter(source -> isRuleSource(source.getKey()))
+                .map(source -> parse(source.getKey(), source.getValue(), dslMappings))
+                .toList();
+        Map<String, TypeDeclarationDescr> declaredTypes = new HashMap<>();
+        parsed.stream()
+                .filter(drl -> drl.pkg() != null)
+                .forEach(drl -> drl.pkg().getTypeDeclarations().forEach(type ->
+                        declaredTypes.putIfAbsent(qualify(drl.pkg().getName(), type.getTypeName()), type)));
+        List<Problem> problems = new ArrayList<>(dslProblems);
+        parsed.parallelStream()
+                .flatMap(drl -> resolve(drl, declaredTypes).stream())
+                .toList()
+                .forEach(problems::add);
+        problems.sort(Comparator.comparing(Problem::source).thenComparingInt(Problem::line));
+        return problems;
+    }
+
+    private ParsedDrl parse(String source, String content, List<DSLMapping> dslMappings) {
+        DrlParser parser = new DrlParser(LanguageLevelOption.DRL6);
+        List<Problem> problems = new ArrayList<>();
+        PackageDescr pkg = null;
+        try {
+            if (isDslr(source)) {
+                // expanders keep state while expanding, so each DSLR source gets its own
+                DefaultExpander expander = new DefaultExpander();
+                dslMappings.forEach(expander::addDSLMapping);
+                DefaultExpanderResolver resolver = new DefaultExpanderResolver();
+                resolver.addExpander("*", expander);
+                pkg = parser.parse(resolver, content);
+            } else {
+                pkg = parser.parse(false, content);
+            }
+        } catch (DroolsParserException e) {
+            problems.add(new Problem(source, 0, e.getMessage()));
+        }
+        for (DroolsError error : parser.getErrors()) {
+            int[] lines = error.getLines();
+            problems.add(new Problem(source, lines != null && lines.length > 0 ? lines[0] : 0, error.getMessage()));
+        }
+        return new ParsedDrl(source, problems.isEmpty() ? pkg : null, problems);
+    }
+
+    private List<Problem> resolve(ParsedDrl drl, Map<String, TypeDeclarationDescr> declaredTypes) {
+        if (drl.pkg() == null) {
+            return drl.problems();
+        }
+        Set<String> imports = new HashSet<>();
+        imports.add(JAVA_LANG_IMPORT);
+        drl.pkg().getImports().stream().map(ImportDescr::getTarget).forEach(imports::add);
+        ClassTypeResolver typeResolver = new ClassTypeResolver(imports, classLoader);
+        Set<String> globals = new HashSet<>();
+        drl.pkg().getGlobals().stream().map(GlobalDescr::getIdentifier).forEach(globals::add);
+        Map<String, RuleDescr> rulesByName = new HashMap<>();
+        drl.pkg().getRules().forEach(rule -> rulesByName.put(rule.getName(), rule));
+
+        List<Problem> problems = new ArrayList<>();
+        for (ImportDescr importDescr : drl.pkg().getImports()) {
+            String target = importDescr.getTarget();
+            if (!target.endsWith(".*") && !declaredTypes.containsKey(target) && !isClass(target, typeResolver)) {
+                problems.add(new Problem(drl.source(), importDescr.getLine(), "Unable to resolve import '" + target + "'"));
+            }
+        }
+        for (RuleDescr rule : drl.pkg().getRules()) {
+            Set<String> variables = collectVariables(rule, rulesByName);
+            for (PatternDescr pattern : collectPatterns(rule)) {
+                String type = pattern.getObjectType();
+                if (type == null) {
+                    continue;
+                }
+                String declaredType = findDeclaredType(type, drl.pkg().getName(), imports, declaredTypes.keySet());
+                Class<?> typeClass = declaredType == null ? resolveClass(type, typeResolver) : null;
+                if (declaredType == null && typeClass == null) {
+                    problems.add(new Problem(drl.source(), pattern.getLine(),
+                            "Unable to resolve ObjectType '" + type + "' in rule \"" + rule.getName() + "\""));
+                    continue;
+                }
+                TypeDeclarationDescr declaration = declaredType != null ? declaredTypes.get(declaredType) : null;
+                if (declaration != null && declaration.getFields().isEmpty()) {
+                    // a declaration without fields only adds metadata to an existing class
+                    declaration = null;
+                    typeClass = resolveClass(type, typeResolver);
+                }
+                if (variables == null || (declaration != null && !declaration.getSuperTypes().isEmpty())) {
+                    continue;
+                }
+                for (BaseDescr constraint : pattern.getDescrs()) {
+                    for (String operand : collectFieldOperands(constraint, variables, globals)) {
+                        String field = getLeadingIdentifier(operand);
+                        boolean resolved = declaration != null ? declaration.getFields().containsKey(field)
+                                : typeClass == null || hasProperty(typeClass, field);
+                        if (!resolved && !isQualifiedClass(operand, typeResolver)) {
+                            int line = constraint.getLine() > 0 ? constraint.getLine() : pattern.getLine();
+                            problems.add(new Problem(drl.source(), line,
+                                    "Unable to resolve field '" + field + "' of ObjectType '" + type + "' in rule \"" + rule.getName() + "\""));
+                        }
+                    }
+                }
+            }
+        }
+        return problems;
+    }
+
+    private List<PatternDescr> collectPatterns(RuleDescr rule) {
+        List<PatternDescr> patterns = new ArrayList<>();
+        collectPatterns(rule.getLhs(), patterns);
+        return patterns;
+    }
+
+    private void collectPatterns(BaseDescr descr, List<PatternDescr> patterns) {
+        if (descr instanceof PatternDescr pattern) {
+            patterns.add(pattern);
+            if (pattern.getSource() instanceof AccumulateDescr accumulate) {
+                collectPatterns(accumulate.getInput(), patterns);
+            } else if (pattern.getSource() instanceof CollectDescr collect) {
+                collectPatterns(collect.getInputPattern(), patterns);
+            }
+        } else if (descr instanceof ConditionalElementDescr element) {
+            element.getDescrs().forEach(child -> collectPatterns(child, patterns));
+        }
+    }
+
+    /**
+     * Returns the variables bound by the given rule and the rules it extends, or {@code null} if it extends
+     * a rule of another source.
+     */
+    private Set<String> collectVariables(RuleDescr rule, Map<String, RuleDescr> rulesByName) {
+        Set<String> variables = new HashSet<>();
+        for (RuleDescr current = rule; current != null; current = rulesByName.get(current.getParentName())) {
+            if (current instanceof QueryDescr query && query.getParameters() != null) {
+                variables.addAll(List.of(query.getParameters()));
+            }
+            for (PatternDescr pattern : collectPatterns(current)) {
+                if (pattern.getIdentifier() != null) {
+                    variables.add(pattern.getIdentifier());
+                }
+                if (pattern.getSource() instanceof AccumulateDescr accumulate) {
+                    accumulate.getFunctions().stream()
+                            .map(AccumulateDescr.AccumulateFunctionCallDescr::getBind)
+                            .filter(Objects::nonNull)
+                            .forEach(variables::add);
+                }
+                for (BaseDescr constraint : pattern.getDescrs()) {
+                    collectOperands(constraint, new ArrayList<>(), variables);
+                }
+            }
+            if (current.getParentName() != null && !rulesByName.containsKey(current.getParentName())) {
+                return null;
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Returns the operands of the given named constraint that may access a field, i.e. those starting
+     * with an identifier that is not a keyword, variable, global or method call.
+     */
+    private List<String> collectFieldOperands(BaseDescr constraint, Set<String> variables, Set<String> globals) {
+        List<String> operands = new ArrayList<>();
+        collectOperands(constraint, operands, new HashSet<>());
+        List<String> fieldOperands = new ArrayList<>();
+        for (String operand : operands) {
+            String expression = operand.trim();
+            String identifier = getLeadingIdentifier(expression);
+            if (identifier.isEmpty() || identifier.startsWith("$") || SourceVersion.isKeyword(identifier)
+                    || expression.substring(identifier.length()).trim().startsWith("(")
+                    || variables.contains(identifier) || globals.contains(identifier)) {
+                continue;
+            }
+            fieldOperands.add(expression);
+        }
+        return fieldOperands;
+    }
+
+    private static String getLeadingIdentifier(String expression) {
+        int end = 0;
+        while (end < expression.length() && (end == 0
+                ? Character.isJavaIdentifierStart(expression.charAt(end))
+                : Character.isJavaIdentifierPart(expression.charAt(end)))) {
+            end++;
+        }
+        return expression.substring(0, end);
+    }
+
+    private void collectOperands(BaseDescr descr, List<String> operands, Set<String> variables) {
+        if (descr instanceof ExprConstraintDescr constraint) {
+            if (constraint.getType() != ExprConstraintDescr.Type.NAMED) {
+                return;
+            }
+            DrlExprParser parser = new DrlExprParser(LanguageLevelOption.DRL6);
+            ConstraintConnectiveDescr expression = parser.parse(constraint.getExpression());
+            if (!parser.hasErrors() && expression != null) {
+                collectOperands(expression, operands, variables);
+            }
+        } else if (descr instanceof ConstraintConnectiveDescr connective) {
+            connective.getDescrs().forEach(child -> collectOperands(child, operands, variables));
+        } else if (descr instanceof RelationalExprDescr relational) {
+            collectOperands(relational.getLeft(), operands, variables);
+            collectOperands(relational.getRight(), operands, variables);
+        } else if (descr instanceof BindingDescr binding) {
+            variables.add(binding.getVariable());
+            if (binding.getExpression() != null) {
+                operands.add(binding.getExpression());
+            }
+        } else if (descr instanceof AtomicExprDescr atomic && !atomic.isLiteral()) {
+            operands.add(atomic.getExpression());
+        }
+    }
+
+    /**
+     * Whether the given expression starts with a class name, e.g. {@code DayOfWeek.FRIDAY} or
+     * {@code java.time.DayOfWeek.FRIDAY}.
+     */
+    private boolean isQualifiedClass(String expression, ClassTypeResolver typeResolver) {
+        StringBuilder name = new StringBuilder();
+        for (String segment : expression.split("\\.")) {
+            if (!SourceVersion.isIdentifier(segment.trim())) {
+                return false;
+            }
+            name.append(name.length() > 0 ? "." : "").append(segment.trim());
+            if (isClass(name.toString(), typeResolver)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasProperty(Class<?> type, String name) {
+        String suffix = name.substring(0, 1).toUpperCase(Locale.ROOT) + name.substring(1);
+        for (Method method : type.getMethods()) {
+            if (method.getParameterCount() == 0 && (method.getName().equals(name)
+                    || method.getName().equals("get" + suffix) || method.getName().equals("is" + suffix))) {
+                return true;
+            }
+        }
+        for (Field field : type.getFields()) {
+            if (field.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the qualified name of the declared type the given pattern type refers to, or {@code null}
+     * if it refers to no declared type.
+     */
+    private String findDeclaredType(String type, String pkg, Set<String> imports, Set<String> declaredTypes) {
+        if (declaredTypes.contains(type)) {
+            return type;
+        }
+        if (declaredTypes.contains(qualify(pkg, type))) {
+            return qualify(pkg, type);
+        }
+        for (String target : imports) {
+            String candidate = target.endsWith(".*") ? target.substring(0, target.length() - 1) + type
+                    : target.endsWith("." + type) ? target : null;
+            if (candidate != null && declaredTypes.contains(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private Class<?> resolveClass(String type, ClassTypeResolver typeResolver) {
+        try {
+            return typeResolver.resolveType(type);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private boolean isClass(String type, ClassTypeResolver typeResolver) {
+        return resolveClass(type, typeResolver) != null;
+    }
+
+    private static boolean isRuleSource(String source) {
+        return isDrl(source) || isDslr(source);
+    }
+
+    private static boolean isDrl(String source) {
+        String name = source.toLowerCase(Locale.ROOT);
+        return name.endsWith(".drl") || name.endsWith(".gdrl") || name.endsWith(".rdrl");
+    }
+
+    private static boolean isDslr(String source) {
+        String name = source.toLowerCase(Locale.ROOT);
+        return name.endsWith(".dslr") || name.endsWith(".rdslr");
+    }
+
+    private static boolean isDsl(String source) {
+        return source.toLowerCase(Locale.ROOT).endsWith(".dsl");
+    }
+
+    private static String qualify(String pkg, String type) {
+        return pkg == null || pkg.isEmpty() ? type : pkg + "." + type;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * Assembles a Kie JAR from in-memory content and directories. Entries are written in lexicographic order
+ * with a fixed timestamp, so that identical content always produces an identical archive. Content added
+ * first takes precedence over later content with the same entry name.
+ *
+ * @author Kevin Wimmer
+ */
+public class KjarWriter {
+
+    /**
+     * The compression level that stores entries without compressing them.
+     */
+    public static final int STORED = 0;
+
+    private static final String MANIFEST_DIR = "META-INF/";
+    private static final String MANIFEST_PATH = MANIFEST_DIR + "MANIFEST.MF";
+    private static final byte[] MANIFEST = "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+    private static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1).getTimeInMillis();
+
+    private final int compressionLevel;
+    private final SortedMap<String, Supplier<byte[]>> entries = new TreeMap<>();
+
+    /**
+     * @param compressionLevel the deflate compression level (1-9), {@link #STORED}, or {@code -1} for the
+     *                         default level
+     */
+    public KjarWriter(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public KjarWriter add(String name, byte[] content) {
+        entries.putIfAbsent(name, () -> content);
+        return this;
+    }
+
+    public KjarWriter addAll(Map<String, byte[]> contents) {
+        contents.forEach(this::add);
+        return this;
+    }
+
+    /**
+     * Adds all files beneath the given directory, which are read when the archive is written.
+     */
+    public KjarWriter addDirectory(File dir) {
+        if (!dir.isDirectory()) {
+            return this;
+        }
+        Path root = dir.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(Files::isRegularFile).forEach(path -> entries.putIfAbsent(
+                    root.relativize(path).toString().replace(File.separatorChar, '/'), () -> readBytes(path)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read directory: " + dir, e);
+        }
+        return this;
+    }
+
+    public void write(File archive) {
+        archive.getParentFile().mkdirs();
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archive)))) {
+            if (compressionLevel != STORED) {
+                zip.setLevel(compressionLevel);
+            }
+            Set<String> directories = new HashSet<>();
+            putDirectories(zip, MANIFEST_PATH, directories);
+            putEntry(zip, MANIFEST_PATH, MANIFEST);
+            for (Map.Entry<String, Supplier<byte[]>> entry : entries.entrySet()) {
+                if (!MANIFEST_PATH.equals(entry.getKey())) {
+                    putDirectories(zip, entry.getKey(), directories);
+                    putEntry(zip, entry.getKey(), entry.getValue().get());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write file: " + archive, e);
+        }
+    }
+
+    private void putDirectories(ZipOutputStream zip, String name, Set<String> directories) throws IOException {
+        for (int index = name.indexOf('/'); index >= 0; index = name.indexOf('/', index + 1)) {
+            String directory = name.substring(0, index + 1);
+            if (directories.add(directory)) {
+                putEntry(zip, directory, new byte[0]);
+            }
+        }
+    }
+
+    private void putEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(ENTRY_TIME);
+        if (compressionLevel == STORED || content.length == 0) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private byte[] readBytes(Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read file: " + path, e);
+        }
+    }
+}
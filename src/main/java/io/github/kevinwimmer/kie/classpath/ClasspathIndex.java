@@ -0,0 +1,268 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.gradle.api.UncheckedIOException;
+
+import io.github.kevinwimmer.kie.util.CacheCleanup;
+
+/**
+ * An index of the class names available on a classpath. The class names of each JAR are cached on
+ * disk by the SHA-256 checksum of the JAR, so only new or changed JARs are read again; class
+ * directories are always scanned.
+ *
+ * @author Kevin Wimmer
+ */
+public class ClasspathIndex {
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+    private static final String INDEX_SUFFIX = ".classes";
+
+    private final Set<String> classNames;
+    private final int indexedJars;
+    private final int reusedJars;
+
+    private ClasspathIndex(Set<String> classNames, int indexedJars, int reusedJars) {
+        this.classNames = classNames;
+        this.indexedJars = indexedJars;
+        this.reusedJars = reusedJars;
+    }
+
+    /**
+     * Indexes the given classpath, reading and updating the JAR indexes cached in the given directory.
+     */
+    public static ClasspathIndex create(Collection<File> classpath, File cacheDir) {
+        AtomicInteger indexed = new AtomicInteger();
+        AtomicInteger reused = new AtomicInteger();
+        List<Collection<String>> parts = classpath.parallelStream()
+                .map(file -> {
+                    if (file.isDirectory()) {
+                        return scanDirectory(file.toPath());
+                    } else if (file.isFile()) {
+                        Path cached = cacheDir.toPath().resolve(checksum(file) + INDEX_SUFFIX);
+                        Collection<String> cachedClassNames = Files.isRegularFile(cached) ? readCachedLines(cached) : null;
+                        if (cachedClassNames != null) {
+                            reused.incrementAndGet();
+                            return cachedClassNames;
+                        }
+                        indexed.incrementAndGet();
+                        return writeLines(cached, scanJar(file));
+                    }
+                    return List.<String>of();
+                })
+                .toList();
+        Set<String> classNames = new HashSet<>();
+        parts.forEach(classNames::addAll);
+        return new ClasspathIndex(classNames, indexed.get(), reused.get());
+    }
+
+    /**
+     * Returns a fingerprint of the given classpath, which changes when a JAR or the contents of a class
+     * directory change. JARs contribute their path, size and modification time. Class directories
+     * contribute the modification times of their subdirectories and the sizes and modification times of
+     * their resources, but their class files are not even stat'ed: Gradle's compile tasks delete outdated
+     * class files before writing new ones, which updates the modification time of the enclosing directory.
+     * A class file rewritten in place by another tool is therefore not noticed.
+     */
+    public static String fingerprint(Collection<File> classpath) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (File file : classpath) {
+                Path path = file.toPath();
+                if (Files.isDirectory(path)) {
+                    fingerprintDirectory(digest, path, Files.readAttributes(path, BasicFileAttributes.class));
+                } else {
+                    update(digest, path, file.length(), file.lastModified());
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to fingerprint classpath", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Whether a class of the given binary name (e.g. {@code org.example.Outer$Inner}) is on the classpath.
+     */
+    public boolean containsClass(String name) {
+        return classNames.contains(name);
+    }
+
+    /**
+     * Returns the number of classes on the classpath.
+     */
+    public int size() {
+        return classNames.size();
+    }
+
+    /**
+     * Returns the number of JARs read because they were not indexed before.
+     */
+    public int getIndexedJars() {
+        return indexedJars;
+    }
+
+    /**
+     * Returns the number of JARs whose cached index was reused.
+     */
+    public int getReusedJars() {
+        return reusedJars;
+    }
+
+    private static Collection<String> scanDirectory(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> dir.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .map(ClasspathIndex::toClassName)
+                    .filter(name -> name != null)
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to index directory: " + dir, e);
+        }
+    }
+
+    private static Collection<String> scanJar(File jar) {
+        Set<String> names = new HashSet<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = toClassName(entries.nextElement().getName());
+                if (name != null) {
+                    names.add(name);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to index JAR: " + jar, e);
+        }
+        return names;
+    }
+
+    /**
+     * Returns the binary name of the class held by the given entry, or {@code null} if the entry does
+     * not hold a class.
+     */
+    static String toClassName(String entry) {
+        if (!entry.endsWith(CLASS_SUFFIX) || entry.endsWith("module-info.class") || entry.endsWith("package-info.class")) {
+            return null;
+        }
+        if (entry.startsWith(VERSIONS_PREFIX)) {
+            // multi-release JAR entries: META-INF/versions/<n>/<class>
+            int start = entry.indexOf('/', VERSIONS_PREFIX.length());
+            entry = start < 0 ? entry : entry.substring(start + 1);
+        }
+        return entry.substring(0, entry.length() - CLASS_SUFFIX.length()).replace('/', '.');
+    }
+
+    private static void fingerprintDirectory(MessageDigest digest, Path dir, BasicFileAttributes attributes) throws IOException {
+        update(digest, dir, -1, attributes.lastModifiedTime().toMillis());
+        // sorted, so that the fingerprint does not depend on the order in which the file system lists entries
+        Map<String, Path> entries = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                String name = entry.getFileName().toString();
+                if (!name.endsWith(CLASS_SUFFIX)) {
+                    entries.put(name, entry);
+                }
+            }
+        }
+        for (Path entry : entries.values()) {
+            BasicFileAttributes entryAttributes = Files.readAttributes(entry, BasicFileAttributes.class);
+            if (entryAttributes.isDirectory()) {
+                fingerprintDirectory(digest, entry, entryAttributes);
+            } else {
+                update(digest, entry, entryAttributes.size(), entryAttributes.lastModifiedTime().toMillis());
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, Path path, long size, long lastModified) {
+        digest.update((path.toAbsolutePath() + ":" + size + ':' + lastModified + '\n').getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String checksum(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read JAR: " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the given cached index and marks it as used, so that it is kept by {@link CacheCleanup}, or
+     * returns {@code null} if a concurrent build deleted it while cleaning up the cache.
+     */
+    private static Collection<String> readCachedLines(Path file) {
+        try {
+            List<String> lines = Files.readAllLines(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return lines;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read file: " + file, e);
+        }
+    }
+
+    private static Collection<String> writeLines(Path file, Collection<String> lines) {
+        try {
+            // write to a temporary file first, so that concurrent builds never read a partial index
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(temp, lines);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write file: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.classpath;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * A {@link URLClassLoader} that consults a {@link ClasspathIndex} before searching its URLs. Lookups of
+ * classes that are not on the classpath, which the Drools compiler performs in large numbers when
+ * resolving imports and fact types, fail immediately instead of probing every JAR.
+ *
+ * @author Kevin Wimmer
+ */
+public class IndexedClassLoader extends URLClassLoader {
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private static final byte[] MISSING = new byte[0];
+
+    private final ClasspathIndex index;
+    private final Map<String, byte[]> classFiles = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public IndexedClassLoader(URL[] urls, ClassLoader parent, ClasspathIndex index) {
+        super(urls, parent);
+        this.index = index;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        if (!index.containsClass(name)) {
+            misses.increment();
+            throw new ClassNotFoundException(name);
+        }
+        hits.increment();
+        return super.findClass(name);
+    }
+
+    @Override
+    public URL findResource(String name) {
+        String className = ClasspathIndex.toClassName(name);
+        if (className != null && !name.startsWith("META-INF/") && !index.containsClass(className)) {
+            misses.increment();
+            return null;
+        }
+        return super.findResource(name);
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String name) {
+        if (ClasspathIndex.toClassName(name) == null) {
+            return super.getResourceAsStream(name);
+        }
+        byte[] classFile = classFiles.computeIfAbsent(name, this::readClassFile);
+        return classFile == MISSING ? null : new ByteArrayInputStream(classFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+        classFiles.clear();
+        super.close();
+    }
+
+    public ClasspathIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the number of class lookups answered from the classpath since this class loader was created.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of class lookups rejected by the index since this class loader was created.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private byte[] readClassFile(String name) {
+        try (InputStream in = super.getResourceAsStream(name)) {
+            return in != null ? in.readAllBytes() : MISSING;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read class file: " + name, e);
+        }
+    }
+}
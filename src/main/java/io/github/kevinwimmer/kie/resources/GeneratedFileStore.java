@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.resources;
+
+import java.io.File;
+import java.util.Map;
+
+import org.drools.util.PortablePath;
+
+/**
+ * A {@link DiskResourceStore} that writes through a {@link GeneratedFileWriter}, so that files whose
+ * content is unchanged are left untouched and written files are kept by
+ * {@link GeneratedFileWriter#deleteStaleFiles()}.
+ *
+ * @author Kevin Wimmer
+ */
+public class GeneratedFileStore extends DiskResourceStore {
+
+    private final GeneratedFileWriter writer;
+
+    /**
+     * @param root   the root directory of the writer
+     * @param writer the writer through which resources are written
+     */
+    public GeneratedFileStore(File root, GeneratedFileWriter writer) {
+        super(root);
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(PortablePath resourcePath, byte[] resourceData, boolean createFolder) {
+        writer.write(Map.of(resourcePath.asString(), resourceData));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.resources;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * Writes generated files beneath a root directory. Each parent directory is created once, files are
+ * written in parallel, and files whose content on disk is already identical are left untouched. Files
+ * beneath the root directory that were not written can then be removed with {@link #deleteStaleFiles()}.
+ *
+ * @author Kevin Wimmer
+ */
+public class GeneratedFileWriter {
+
+    private final Path root;
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicLong writtenBytes = new AtomicLong();
+
+    public GeneratedFileWriter(File root) {
+        this.root = root.toPath();
+    }
+
+    /**
+     * Writes the given files.
+     *
+     * @param contents the file contents, keyed by path relative to the root directory
+     */
+    public void write(Map<String, byte[]> contents) {
+        contents.keySet()
+                .stream()
+                .map(name -> root.resolve(name).getParent())
+                .distinct()
+                .forEach(this::createDirectories);
+        contents.entrySet()
+                .parallelStream()
+                .forEach(entry -> write(entry.getKey(), entry.getValue()));
+    }
+
+    private void write(String name, byte[] content) {
+        Path path = root.resolve(name);
+        files.put(name, content);
+        try {
+            if (Files.isRegularFile(path) && Files.size(path) == content.length && Arrays.equals(Files.readAllBytes(path), content)) {
+                unchanged.incrementAndGet();
+                return;
+            }
+            Files.write(path, content);
+            written.incrementAndGet();
+            writtenBytes.addAndGet(content.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write file: " + path, e);
+        }
+    }
+
+    private void createDirectories(Path dir) {
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create directory: " + dir, e);
+        }
+    }
+
+    /**
+     * Deletes all files beneath the root directory that were not written by this writer, along with any
+     * directories left empty.
+     *
+     * @return the number of files deleted
+     */
+    public int deleteStaleFiles() {
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        int deleted = 0;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                if (path.equals(root)) {
+                    continue;
+                }
+                if (Files.isDirectory(path)) {
+                    deleteIfEmpty(path);
+                } else if (!files.containsKey(root.relativize(path).toString().replace(File.separatorChar, '/'))) {
+                    Files.delete(path);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete stale files from: " + root, e);
+        }
+        return deleted;
+    }
+
+    private void deleteIfEmpty(Path dir) throws IOException {
+        try (Stream<Path> children = Files.list(dir)) {
+            if (children.findAny().isEmpty()) {
+                Files.delete(dir);
+            }
+        }
+    }
+
+    /**
+     * Returns the content of all files written by this writer, keyed by path relative to the root
+     * directory.
+     */
+    public Map<String, byte[]> getContents() {
+        return Collections.unmodifiableMap(files);
+    }
+
+    /**
+     * Returns the number of distinct files written by this writer, whether changed or not.
+     */
+    public int getFileCount() {
+        return files.size();
+    }
+
+    public int getWrittenCount() {
+        return written.get();
+    }
+
+    public int getUnchangedCount() {
+        return unchanged.get();
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+}
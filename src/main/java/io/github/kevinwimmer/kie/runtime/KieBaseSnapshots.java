@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.runtime;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.lang.model.SourceVersion;
+
+import org.drools.core.common.DroolsObjectInputStream;
+import org.drools.core.common.DroolsObjectOutputStream;
+import org.kie.api.KieBase;
+import org.kie.api.builder.ReleaseId;
+import org.kie.memorycompiler.KieMemoryCompiler;
+
+/**
+ * Reads and writes the serialized KieBase snapshots packaged into a Kie JAR, and generates the class
+ * that applications use to load them.
+ * <p>
+ *   The loader is compiled into a package derived from the group and artifact ID of the Kie JAR (see
+ *   {@link #getLoaderClassName(ReleaseId)}), so that Kie JARs built by different plugin versions never
+ *   contain the same class. Applications load a pre-built KieBase without depending on the plugin:
+ * </p>
+ * <pre>
+ * KieBase kieBase = com.example.my_rules.KieBaseSnapshots.load("myKieBase");
+ * </pre>
+ * <p>
+ *   Snapshots use the Java serialization of the KieBase ({@link DroolsObjectOutputStream}). The protobuf
+ *   format of {@code drools-serialization-protobuf} only covers the state of KieSessions and the
+ *   compilation cache, not the KieBase itself. A snapshot can therefore only be loaded by the Drools
+ *   version that wrote it, with the same fact classes, and must only be loaded from trusted Kie JARs.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public final class KieBaseSnapshots {
+
+    public static final String SNAPSHOT_FILE_NAME = "kbase.ser";
+    public static final String LOADER_SIMPLE_NAME = "KieBaseSnapshots";
+
+    private static final String LOADER_SOURCE = """
+            package %s;
+
+            import java.io.BufferedInputStream;
+            import java.io.IOException;
+            import java.io.InputStream;
+
+            import org.drools.core.common.DroolsObjectInputStream;
+            import org.kie.api.KieBase;
+
+            /**
+             * Loads the KieBase snapshots of this Kie JAR. Generated by the Kie JAR Gradle plugin.
+             */
+            public final class %s {
+
+                private %s() {
+                }
+
+                public static KieBase load(String kieBaseName) throws IOException {
+                    return load(kieBaseName, Thread.currentThread().getContextClassLoader());
+                }
+
+                public static KieBase load(String kieBaseName, ClassLoader classLoader) throws IOException {
+                    InputStream in = classLoader.getResourceAsStream("META-INF/" + kieBaseName + "/%s");
+                    if (in == null) {
+                        throw new IllegalArgumentException("No snapshot found for KieBase " + kieBaseName);
+                    }
+                    try (DroolsObjectInputStream ois = new DroolsObjectInputStream(new BufferedInputStream(in), classLoader)) {
+                        return (KieBase) ois.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException("Unable to deserialize KieBase " + kieBaseName, e);
+                    }
+                }
+            }
+            """;
+
+    private KieBaseSnapshots() {
+    }
+
+    /**
+     * Returns the path of the snapshot of the given KieBase within the Kie JAR.
+     */
+    public static String getSnapshotPath(String kieBaseName) {
+        return "META-INF/" + kieBaseName + "/" + SNAPSHOT_FILE_NAME;
+    }
+
+    /**
+     * Returns the name of the loader class generated into the Kie JAR with the given release ID, e.g.
+     * {@code com.example.my_rules.KieBaseSnapshots} for {@code com.example:my-rules}. Characters that
+     * are not valid in a package name are replaced by underscores.
+     */
+    public static String getLoaderClassName(ReleaseId releaseId) {
+        StringBuilder className = new StringBuilder();
+        String packageName = releaseId.getGroupId() != null
+                ? releaseId.getGroupId() + "." + releaseId.getArtifactId()
+                : releaseId.getArtifactId();
+        for (String segment : packageName.split("\\.")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            StringBuilder identifier = new StringBuilder();
+            for (char c : segment.toLowerCase(Locale.ROOT).toCharArray()) {
+                boolean valid = identifier.length() == 0 ? Character.isJavaIdentifierStart(c) : Character.isJavaIdentifierPart(c);
+                identifier.append(valid ? c : '_');
+            }
+            if (SourceVersion.isKeyword(identifier)) {
+                identifier.append('_');
+            }
+            className.append(identifier).append('.');
+        }
+        return className.append(LOADER_SIMPLE_NAME).toString();
+    }
+
+    /**
+     * Compiles the loader class with the given name against the given class loader, which must provide
+     * the Drools runtime, and returns its class files by path.
+     */
+    public static Map<String, byte[]> generateLoader(String className, ClassLoader classLoader) {
+        int separator = className.lastIndexOf('.');
+        String simpleName = className.substring(separator + 1);
+        String source = String.format(LOADER_SOURCE, className.substring(0, separator), simpleName, simpleName, SNAPSHOT_FILE_NAME);
+        Map<String, byte[]> classFiles = new HashMap<>();
+        KieMemoryCompiler.compileNoLoad(Map.of(className, source), classLoader)
+                .forEach((name, bytes) -> classFiles.put(name.replace('.', '/') + ".class", bytes));
+        return classFiles;
+    }
+
+    public static KieBase read(InputStream in, ClassLoader classLoader) throws IOException {
+        try (DroolsObjectInputStream ois = new DroolsObjectInputStream(new BufferedInputStream(in), classLoader)) {
+            return (KieBase) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to deserialize KieBase", e);
+        }
+    }
+
+    public static void write(KieBase kieBase, OutputStream out) throws IOException {
+        try (DroolsObjectOutputStream oos = new DroolsObjectOutputStream(out)) {
+            oos.writeObject(kieBase);
+        }
+    }
+}
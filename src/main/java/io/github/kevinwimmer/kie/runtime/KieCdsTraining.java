@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+
+/**
+ * The training run of the {@code generateKieCds} task, which records the classes an application
+ * loads when it starts using a Kie JAR.
+ * <p>
+ *   It loads every class of the Kie JAR given as the only argument, which must also be on the
+ *   classpath, and then creates the classpath {@code KieContainer}, each of its KieBases, and a
+ *   stateful and a stateless session of each KieBase. It must depend on nothing but the JDK and the
+ *   Drools runtime.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public final class KieCdsTraining {
+
+    private KieCdsTraining() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: KieCdsTraining <kjar>");
+        }
+        ClassLoader classLoader = KieCdsTraining.class.getClassLoader();
+        int loaded = 0;
+        int failed = 0;
+        try (JarFile kjar = new JarFile(new File(args[0]))) {
+            Enumeration<JarEntry> entries = kjar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(".class") || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                try {
+                    Class.forName(name.substring(0, name.length() - ".class".length()).replace('/', '.'), false, classLoader);
+                    loaded++;
+                } catch (ClassNotFoundException | LinkageError e) {
+                    failed++;
+                }
+            }
+        }
+
+        KieContainer kieContainer = KieServices.Factory.get().getKieClasspathContainer(classLoader);
+        int kieBases = 0;
+        try {
+            for (String kieBaseName : kieContainer.getKieBaseNames()) {
+                KieBase kieBase = kieContainer.getKieBase(kieBaseName);
+                KieSession kieSession = kieBase.newKieSession();
+                try {
+                    kieSession.fireAllRules();
+                } finally {
+                    kieSession.dispose();
+                }
+                kieBase.newStatelessKieSession().execute(Collections.emptyList());
+                kieBases++;
+            }
+        } finally {
+            kieContainer.dispose();
+        }
+        System.out.printf("Loaded %d classes of the Kie JAR (%d could not be loaded) and %d KieBases.%n", loaded, failed, kieBases);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+
+package io.github.kevinwimmer.kie.util;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.gradle.api.UncheckedIOException;
+
+/**
+ * Deletes the entries of the caches the plugin keeps in the Gradle user home once they were not used for
+ * a while, as Gradle does for its own caches.
+ * <p>
+ *   A cache is a flat directory of files whose modification time is updated whenever they are used. As
+ *   the directory may be shared by concurrent builds, a marker file limits the cleanup to once a day.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public final class CacheCleanup {
+
+    static final String MARKER_FILE_NAME = ".cleanup";
+
+    private static final Duration CLEANUP_INTERVAL = Duration.ofDays(1);
+
+    private CacheCleanup() {
+    }
+
+    /**
+     * Deletes the files of the given cache directory that were not used within the given period, unless
+     * the directory was cleaned up within the last day.
+     *
+     * @return the number of files deleted
+     */
+    public static int deleteUnusedEntries(Path cacheDir, Duration maxAge) {
+        if (!Files.isDirectory(cacheDir)) {
+            return 0;
+        }
+        Path marker = cacheDir.resolve(MARKER_FILE_NAME);
+        long now = System.currentTimeMillis();
+        try {
+            if (Files.isRegularFile(marker)
+                    && Files.getLastModifiedTime(marker).toMillis() > now - CLEANUP_INTERVAL.toMillis()) {
+                return 0;
+            }
+            try {
+                Files.createFile(marker);
+            } catch (FileAlreadyExistsException e) {
+                Files.setLastModifiedTime(marker, FileTime.fromMillis(now));
+            }
+
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(cacheDir)) {
+                files = stream.filter(file -> !file.equals(marker)).toList();
+            }
+            long cutoff = now - maxAge.toMillis();
+            int deleted = 0;
+            for (Path file : files) {
+                try {
+                    if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // deleted by a concurrent cleanup
+                }
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to clean up cache directory: " + cacheDir, e);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A minimal JSON parser and writer for the reports and benchmark fixtures of the plugin.
+ * <p>
+ *   Objects are parsed to maps, arrays to lists, numbers to {@link BigDecimal}s, and {@code true},
+ *   {@code false} and {@code null} to their Java counterparts. Conversely, maps, collections, numbers,
+ *   booleans and {@code null} are written as their JSON counterparts, and any other value as a string.
+ *   Written JSON is indented by two spaces per level.
+ * </p>
+ *
+ * @author Kevin Wimmer
+ */
+public final class Json {
+
+    private final String text;
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON array of objects.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, Object>> parseObjects(String text) {
+        Object value = parse(text);
+        if (!(value instanceof List<?> list) || !list.stream().allMatch(Map.class::isInstance)) {
+            throw new IllegalArgumentException("Expected a JSON array of objects");
+        }
+        return (List<Map<String, Object>>) value;
+    }
+
+    public static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.readValue();
+        json.skipWhitespace();
+        if (json.position < text.length()) {
+            throw json.error("Unexpected content");
+        }
+        return value;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        char c = text.charAt(position);
+        if (c == '{') {
+            return readObject();
+        } else if (c == '[') {
+            return readArray();
+        } else if (c == '"') {
+            return readString();
+        } else if (text.startsWith("true", position)) {
+            position += 4;
+            return Boolean.TRUE;
+        } else if (text.startsWith("false", position)) {
+            position += 5;
+            return Boolean.FALSE;
+        } else if (text.startsWith("null", position)) {
+            position += 4;
+            return null;
+        }
+        return readNumber();
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a member name");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() {
+        StringBuilder value = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            } else if (c == '\\') {
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private BigDecimal readNumber() {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        if (start == position) {
+            throw error("Unexpected character '" + text.charAt(position) + "'");
+        }
+        return new BigDecimal(text.substring(start, position));
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : '\0';
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + position + " of JSON input");
+    }
+
+    /**
+     * Writes the given value as JSON, followed by a line break.
+     */
+    public static String write(Object value) {
+        StringBuilder json = new StringBuilder();
+        writeValue(json, value, "");
+        return json.append('\n').toString();
+    }
+
+    private static void writeValue(StringBuilder json, Object value, String indent) {
+        if (value instanceof Map<?, ?> map) {
+            writeElements(json, map.entrySet(), '{', '}', indent, (entry, nested) -> {
+                writeString(json, String.valueOf(entry.getKey()));
+                json.append(": ");
+                writeValue(json, entry.getValue(), nested);
+            });
+        } else if (value instanceof Collection<?> collection) {
+            writeElements(json, collection, '[', ']', indent, (element, nested) -> writeValue(json, element, nested));
+        } else if (value instanceof Double || value instanceof Float) {
+            // JSON has no representation for NaN or infinity
+            json.append(Double.isFinite(((Number) value).doubleValue()) ? value : null);
+        } else if (value == null || value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            writeString(json, value.toString());
+        }
+    }
+
+    private static <T> void writeElements(StringBuilder json, Collection<T> elements, char open, char close, String indent,
+            BiConsumer<T, String> elementWriter) {
+        json.append(open);
+        if (elements.isEmpty()) {
+            json.append(close);
+            return;
+        }
+        String nested = indent + "  ";
+        String separator = "\n";
+        for (T element : elements) {
+            json.append(separator).append(nested);
+            elementWriter.accept(element, nested);
+            separator = ",\n";
+        }
+        json.append('\n').append(indent).append(close);
+    }
+
+    private static void writeString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\b' -> json.append("\\b");
+                case '\f' -> json.append("\\f");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -16,58 +16,128 @@
 package io.github.kevinwimmer.maven.pom;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.tasks.SourceSet;
 import org.kie.api.builder.ReleaseId;
 import org.kie.util.maven.support.DependencyFilter;
 import org.kie.util.maven.support.PomModel;
 import org.kie.util.maven.support.ReleaseIdImpl;
 
+/**
+ * A {@link PomModel} backed by a snapshot of a project's coordinates and declared dependencies.
+ * <p>
+ *   Coordinates are given in {@code groupId:artifactId:version} form so that they can be captured as
+ *   task inputs at configuration time; see {@link #toCoordinates(Project)} and
+ *   {@link #collectDependencies(Project, SourceSet)}.
+ * </p>
+ * <p>
+ *   The Drools builder queries the dependencies many times while building a KieModule, so they are
+ *   converted once on construction and kept per scope. Filters are applied on each query rather than
+ *   cached, since the builder creates a new filter instance for most queries.
+ * </p>
+ */
 public class ProjectPomModel implements PomModel {
 
-    private Project project;
+    private final ReleaseId releaseId;
+    private final ReleaseId parentReleaseId;
+    private final Map<String, List<ReleaseId>> dependenciesByScope = new LinkedHashMap<>();
+    private final Collection<ReleaseId> dependencies;
 
-    public ProjectPomModel(Project project) {
-        this.project = project;
+    public ProjectPomModel(String releaseId, String parentReleaseId, Map<String, List<String>> dependencies) {
+        this.releaseId = toReleaseId(releaseId);
+        this.parentReleaseId = parentReleaseId == null ? null : toReleaseId(parentReleaseId);
+        dependencies.forEach((scope, coordinates) ->
+                dependenciesByScope.put(scope, coordinates.stream().map(ProjectPomModel::toReleaseId).toList()));
+        this.dependencies = dependenciesByScope.values().stream().flatMap(List::stream).toList();
     }
 
     @Override
     public ReleaseId getReleaseId() {
-        return new ReleaseIdImpl(project.getGroup().toString(), project.getName(), project.getVersion().toString());
+        return releaseId;
     }
 
     @Override
     public ReleaseId getParentReleaseId() {
-        Project parent = project.getParent();
-        return parent == null ? null : new ReleaseIdImpl(parent.getGroup().toString(), parent.getName(), parent.getVersion().toString());
+        return parentReleaseId;
     }
 
     @Override
     public Collection<ReleaseId> getDependencies() {
-        return project
-                .getConfigurations()
-                .stream()
-                .flatMap(config -> getAllDependencies(config).stream())
-                .toList();
-    }
-
-    private Collection<ReleaseId> getAllDependencies(Configuration config) {
-        return config
-                .getAllDependencies()
-                .stream()
-                .map(dep -> (ReleaseId) new ReleaseIdImpl(dep.getGroup(), dep.getName(), dep.getVersion()))
-                .toList();
+        return dependencies;
     }
 
     @Override
     public Collection<ReleaseId> getDependencies(DependencyFilter filter) {
-        return project
-                .getConfigurations()
-                .getAsMap()
+        return dependenciesByScope
                 .entrySet()
                 .stream()
-                .flatMap(entry -> getAllDependencies(entry.getValue()).stream().filter(dep -> filter.accept(dep, entry.getKey())))
+                .flatMap(entry -> entry.getValue().stream().filter(dep -> filter.accept(dep, entry.getKey())))
                 .toList();
     }
+
+    /**
+     * Returns the coordinates of the given project, or {@code null} if the project is {@code null}.
+     */
+    public static String toCoordinates(Project project) {
+        return project == null ? null : toCoordinates(project, project.getName());
+    }
+
+    /**
+     * Returns the coordinates of the given project with the given artifact ID, e.g. for a Kie JAR built
+     * from a source set other than {@code main}.
+     */
+    public static String toCoordinates(Project project, String artifactId) {
+        return toCoordinates(project.getGroup().toString(), artifactId, project.getVersion().toString());
+    }
+
+    /**
+     * Collects the coordinates of the dependencies declared for the classpaths of the given source set,
+     * keyed by Maven scope: {@code compile} for dependencies on both classpaths, {@code provided} for
+     * those only on the compile classpath and {@code runtime} for those only on the runtime classpath.
+     * <p>
+     *   Other configurations of the project are not looked at, and the classpaths are not resolved.
+     * </p>
+     */
+    public static Map<String, List<String>> collectDependencies(Project project, SourceSet sourceSet) {
+        Set<String> compileClasspath = getAllDependencies(project
+                .getConfigurations()
+                .getByName(sourceSet.getCompileClasspathConfigurationName()));
+        Set<String> runtimeClasspath = getAllDependencies(project
+                .getConfigurations()
+                .getByName(sourceSet.getRuntimeClasspathConfigurationName()));
+
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("compile", compileClasspath.stream().filter(runtimeClasspath::contains).toList());
+        dependencies.put("provided", compileClasspath.stream().filter(dep -> !runtimeClasspath.contains(dep)).toList());
+        dependencies.put("runtime", runtimeClasspath.stream().filter(dep -> !compileClasspath.contains(dep)).toList());
+        return dependencies;
+    }
+
+    private static Set<String> getAllDependencies(Configuration config) {
+        Set<String> dependencies = new LinkedHashSet<>();
+        config
+                .getAllDependencies()
+                .forEach(dep -> dependencies.add(toCoordinates(dep.getGroup(), dep.getName(), dep.getVersion())));
+        return dependencies;
+    }
+
+    private static String toCoordinates(String groupId, String artifactId, String version) {
+        return String.join(":", groupId == null ? "" : groupId, artifactId, version == null ? "" : version);
+    }
+
+    private static ReleaseId toReleaseId(String coordinates) {
+        String[] parts = coordinates.split(":", -1);
+        return new ReleaseIdImpl(emptyToNull(parts[0]), parts[1], emptyToNull(parts[2]));
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
 }
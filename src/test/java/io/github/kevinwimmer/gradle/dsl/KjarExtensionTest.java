@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.gradle.dsl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+
+class KjarExtensionTest {
+
+    private final Project project = ProjectBuilder.builder().build();
+
+    @Test
+    void testEmptyKmodule() {
+        KjarExtension kjar = project.getObjects().newInstance(KjarExtension.class);
+
+        assertEquals("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <kmodule xmlns="http://www.drools.org/xsd/kmodule"/>""", kjar.toKmoduleXml());
+    }
+
+    @Test
+    void testEscapedAttributes() {
+        KjarExtension kjar = project.getObjects().newInstance(KjarExtension.class);
+        kjar.getKbases().create("rules\"<&>'", kbase -> {
+            kbase.getPackages().set(List.of("io.github.kevinwimmer.rules", "io.github.kevinwimmer.a&b"));
+            kbase.getDefaultKieBase().set(true);
+            kbase.getKsessions().create("session\"&", ksession -> ksession.getType().set("stateless"));
+        });
+
+        assertEquals("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <kmodule xmlns="http://www.drools.org/xsd/kmodule">
+                  <kbase name="rules&quot;&lt;&amp;&gt;&apos;" \
+                packages="io.github.kevinwimmer.rules,io.github.kevinwimmer.a&amp;b" default="true">
+                    <ksession name="session&quot;&amp;" type="stateless"/>
+                  </kbase>
+                </kmodule>""", kjar.toKmoduleXml());
+    }
+}
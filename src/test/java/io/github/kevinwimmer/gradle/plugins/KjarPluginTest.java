@@ -15,7 +15,10 @@
 
 package io.github.kevinwimmer.gradle.plugins;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
@@ -23,10 +26,13 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.file.Files;
 import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
 
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -52,13 +58,7 @@ class KjarPluginTest {
         createProjectFiles();
 
         // execute the build
-        GradleRunner runner = GradleRunner.create();
-        runner.forwardOutput();
-        runner.forwardStdOutput(new PrintWriter(System.out));
-        runner.withPluginClasspath();
-        runner.withArguments("build", "-info");
-        runner.withProjectDir(projectDir);
-        BuildResult result = runner.build();
+        BuildResult result = runBuild("build", "-info");
 
         // Verify the result
         assertTrue(result.getOutput().contains("KieModule successfully built!"));
@@ -73,10 +73,600 @@ class KjarPluginTest {
             assertKjarEntryExists("META-INF/kmodule.info", kjar);
             assertKjarEntryExists("META-INF/kmodule.xml", kjar);
         }
+
+        String report = Files.readString(new File(projectDir, "build/reports/drools/compileDrools/report.json").toPath());
+        assertTrue(report.contains("\"rules\": 2"));
+        assertTrue(report.contains("\"classLookupMisses\""));
+        assertTrue(new File(projectDir, "build/reports/drools/compileDrools/report.html").exists());
+    }
+
+    @Test
+    void testBuildCache() throws IOException {
+        createProjectFiles();
+
+        BuildResult result = runBuild("build", "--build-cache");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":" + KjarPlugin.COMPILE_DROOLS_TASK_NAME).getOutcome());
+
+        // a clean build of the same sources should be served from the build cache
+        result = runBuild("clean", "build", "--build-cache");
+        assertEquals(TaskOutcome.FROM_CACHE, result.task(":" + KjarPlugin.COMPILE_DROOLS_TASK_NAME).getOutcome());
+
+        File artifact = new File(projectDir, "/build/libs/kjar-plugin-test-1.0.0.jar");
+        try (JarFile kjar = new JarFile(artifact)) {
+            assertKjarEntryExists("META-INF/defaultKieBase/kbase.cache", kjar);
+            assertKjarEntryExists("META-INF/kmodule.info", kjar);
+        }
+    }
+
+    @Test
+    void testConfigurationCache() throws IOException {
+        createProjectFiles();
+
+        BuildResult result = runBuild("build", "--configuration-cache");
+        assertTrue(result.getOutput().contains("Configuration cache entry stored."));
+
+        result = runBuild("clean", "build", "--configuration-cache");
+        assertTrue(result.getOutput().contains("Configuration cache entry stored."));
+
+        result = runBuild("clean", "build", "--configuration-cache");
+        assertTrue(result.getOutput().contains("Configuration cache entry reused."));
+        assertTrue(new File(projectDir, "/build/libs/kjar-plugin-test-1.0.0.jar").exists());
+    }
+
+    @Test
+    void testKieBaseSnapshots() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                tasks.named('compileDrools') {
+                  kieBaseSnapshots = true
+                }""");
+
+        BuildResult result = runBuild("build");
+        assertTrue(result.getOutput().contains("KieBase defaultKieBase: built in"));
+        assertTrue(result.getOutput().contains("KieBase snapshots can be loaded with io.github.kevinwimmer.test.kjar_plugin_test.KieBaseSnapshots"));
+
+        // the loader is generated into the package of the Kie JAR instead of copying the plugin's class
+        File artifact = new File(projectDir, "/build/libs/kjar-plugin-test-1.0.0.jar");
+        try (JarFile kjar = new JarFile(artifact)) {
+            assertKjarEntryExists("META-INF/defaultKieBase/kbase.ser", kjar);
+            assertKjarEntryExists("io/github/kevinwimmer/test/kjar_plugin_test/KieBaseSnapshots.class", kjar);
+            assertNull(kjar.getEntry("io/github/kevinwimmer/kie/runtime/KieBaseSnapshots.class"));
+        }
+
+        // snapshots are written with the other generated files, so that the directly assembled Kie JAR has them
+        appendString(getBuildFile(), """
+                tasks.named('compileDrools') {
+                  directArchive = true
+                }""");
+        runBuild("clean", "build");
+        try (JarFile kjar = new JarFile(new File(projectDir, "/build/kjar/kjar-plugin-test-1.0.0.jar"))) {
+            assertKjarEntryExists("META-INF/defaultKieBase/kbase.ser", kjar);
+            assertKjarEntryExists("META-INF/defaultKieBase/kbase.cache", kjar);
+            assertKjarEntryExists("io/github/kevinwimmer/test/kjar_plugin_test/KieBaseSnapshots.class", kjar);
+        }
+
+        appendString(getBuildFile(), """
+                tasks.named('compileDrools') {
+                  executableModel = true
+                }""");
+        result = runBuild("build");
+        assertTrue(result.getOutput().contains("KieBase snapshots are not generated for the executable model."));
+    }
+
+    @Test
+    void testKieBases() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                kjar {
+                  kbases {
+                    fridayRules {
+                      packages = ['io.github.kevinwimmer.rules']
+                      defaultKieBase = true
+                      ksessions {
+                        fridaySession {
+                          type = 'stateless'
+                        }
+                      }
+                    }
+                    otherRules {
+                      packages = ['io.github.kevinwimmer.rules']
+                      eventProcessingMode = 'stream'
+                    }
+                  }
+                }""");
+
+        BuildResult result = runBuild("build", "-info");
+        assertTrue(result.getOutput().contains("Compiling 2 independent KieBase groups"));
+
+        File artifact = new File(projectDir, "/build/libs/kjar-plugin-test-1.0.0.jar");
+        try (JarFile kjar = new JarFile(artifact)) {
+            assertKjarEntryExists("META-INF/fridayRules/kbase.cache", kjar);
+            assertKjarEntryExists("META-INF/otherRules/kbase.cache", kjar);
+            assertKjarEntryExists("META-INF/kmodule.info", kjar);
+        }
+    }
+
+    @Test
+    void testShardedBuild() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                tasks.named('compileDrools') {
+                  maxRulesPerShard = 1
+                }""");
+        // the function and query are defined in another file than the rules using them, which end up in other shards
+        writeString(new File(getDrlFile().getParentFile(), "functions.drl"), """
+                package io.github.kevinwimmer.rules;
+                import java.time.LocalDate;
+                function boolean isWeekend(LocalDate date) {
+                  return date.getDayOfWeek().getValue() >= 6;
+                }
+                query leapDays
+                  LocalDate(leapYear)
+                end""");
+        writeString(new File(getDrlFile().getParentFile(), "weekend.drl"), """
+                package io.github.kevinwimmer.rules;
+                import java.time.LocalDate;
+                rule "Is it the weekend?"
+                  @ticket("KIE-1")
+                when
+                  $date : LocalDate()
+                  eval(isWeekend($date))
+                then
+                end
+                rule "Is it a leap weekend?" extends "Is it the weekend?"
+                  @ticket("KIE-2")
+                when
+                  LocalDate(this == $date, leapYear)
+                then
+                end
+                rule "Is it a leap day?"
+                when
+                  leapDays()
+                then
+                end""");
+
+        BuildResult result = runBuild("build", "-info");
+        assertTrue(result.getOutput().contains("Compiling package io.github.kevinwimmer.rules in 4 shards."));
+
+        File artifact = new File(projectDir, "/build/libs/kjar-plugin-test-1.0.0.jar");
+        try (JarFile kjar = new JarFile(artifact)) {
+            assertKjarEntryExists("META-INF/kmodule.info", kjar);
+            assertKjarEntryExists("META-INF/defaultKieBase/kbase.cache", kjar);
+        }
+
+        String report = Files.readString(new File(projectDir, "build/reports/drools/compileDrools/report.json").toPath());
+        assertTrue(report.contains("\"shards\": 4"));
+    }
+
+    @Test
+    void testIncrementalCompilation() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                tasks.named('compileDrools') {
+                  incremental = true
+                }""");
+        File functionsFile = new File(projectDir, "src/main/resources/io/github/kevinwimmer/util/functions.drl");
+        writeString(functionsFile, """
+                package io.github.kevinwimmer.util;
+                import java.time.LocalDate;
+                function boolean isWeekend(LocalDate date) {
+                  return date.getDayOfWeek().getValue() >= 6;
+                }""");
+        File weekendFile = new File(projectDir, "src/main/resources/io/github/kevinwimmer/weekend/weekend.drl");
+        writeString(weekendFile, """
+                package io.github.kevinwimmer.weekend;
+                import java.time.LocalDate;
+                import function io.github.kevinwimmer.util.IsWeekend.isWeekend;
+                rule "Is it the weekend?"
+                when
+                  $date : LocalDate()
+                  eval(isWeekend($date))
+                then
+                end""");
+        runBuild("build");
+
+        // the rules using the function are rebuilt along with it
+        writeString(functionsFile, """
+                package io.github.kevinwimmer.util;
+                import java.time.LocalDate;
+                function boolean isWeekend(LocalDate date) {
+                  return date.getDayOfWeek().getValue() > 5;
+                }""");
+        BuildResult result = runBuild("build", "-info");
+        assertTrue(result.getOutput().contains(
+                "KieModule packages [io.github.kevinwimmer.util, io.github.kevinwimmer.weekend] successfully rebuilt!"));
+
+        // the function is compiled along with the rules using it
+        appendString(weekendFile, """
+                rule "Is it a leap weekend?"
+                when
+                  $date : LocalDate(leapYear)
+                  eval(isWeekend($date))
+                then
+                end""");
+        result = runBuild("build", "-info");
+        assertTrue(result.getOutput().contains(
+                "KieModule packages [io.github.kevinwimmer.util, io.github.kevinwimmer.weekend] successfully rebuilt!"));
+
+        // unrelated packages are rebuilt on their own
+        appendString(getDrlFile(), """
+                rule "Is it Saturday?"
+                when
+                  LocalDate(dayOfWeek == DayOfWeek.SATURDAY)
+                then
+                end""");
+        result = runBuild("build", "-info");
+        assertTrue(result.getOutput().contains("KieModule packages [io.github.kevinwimmer.rules] successfully rebuilt!"));
+
+        File artifact = new File(projectDir, "/build/libs/kjar-plugin-test-1.0.0.jar");
+        try (JarFile kjar = new JarFile(artifact)) {
+            assertKjarEntryExists("META-INF/defaultKieBase/kbase.cache", kjar);
+            assertKjarEntryExists("META-INF/kmodule.info", kjar);
+        }
+    }
+
+    @Test
+    void testIncrementalCompilationWithDecisionTables() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                tasks.named('compileDrools') {
+                  incremental = true
+                }
+                tasks.named('benchmarkRules') {
+                  warmupIterations = 0
+                  iterations = 1
+                  datasets {
+                    days {
+                      factType = 'java.time.LocalDate'
+                      generator = 'java.time.LocalDate.of(2024, 1, 1).plusDays(i)'
+                      count = 7
+                    }
+                  }
+                }""");
+        // the decision table shares its package with the DRL file
+        writeString(new File(projectDir, "src/main/resources/io/github/kevinwimmer/rules/weekend.csv"), """
+                RuleSet,io.github.kevinwimmer.rules
+                Import,java.time.LocalDate
+                RuleTable Weekend
+                CONDITION,ACTION
+                LocalDate,
+                dayOfWeek.getValue() > $param,System.out.println($param);
+                Day,Message
+                5,5""");
+
+        // a week fires the Friday rule once and the decision table rule on Saturday and Sunday
+        BuildResult result = runBuild(KjarPlugin.BENCHMARK_RULES_TASK_NAME);
+        assertTrue(result.getOutput().contains("Inserted 7 facts and fired 3 rules"));
+
+        appendString(getDrlFile(), """
+                rule "Is it Saturday?"
+                when
+                  LocalDate(dayOfWeek == DayOfWeek.SATURDAY)
+                then
+                end""");
+        result = runBuild(KjarPlugin.BENCHMARK_RULES_TASK_NAME, "-info");
+        assertTrue(result.getOutput().contains(
+                "Package io.github.kevinwimmer.rules contains decision tables or other non-DRL resources, rebuilding all packages."));
+        assertTrue(result.getOutput().contains("Inserted 7 facts and fired 4 rules"));
+    }
+
+    @Test
+    void testSourceSets() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                sourceSets {
+                  main {
+                    resources.srcDir 'src/main/rules'
+                  }
+                  tenant
+                }""");
+        writeString(new File(projectDir, "src/main/rules/io/github/kevinwimmer/extra/extra.drl"), """
+                package io.github.kevinwimmer.extra;
+                import java.time.LocalDate;
+                rule "Is it a leap year?"
+                when
+                  LocalDate(leapYear)
+                then
+                end""");
+        writeString(new File(projectDir, "src/tenant/resources/io/github/kevinwimmer/tenant/tenant.drl"), """
+                package io.github.kevinwimmer.tenant;
+                import java.time.LocalDate;
+                rule "Is it the tenant's birthday?"
+                when
+                  LocalDate(dayOfYear == 42)
+                then
+                end""");
+
+        BuildResult result = runBuild("jar", "tenantKjar");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":compileTenantDrools").getOutcome());
+
+        try (JarFile kjar = new JarFile(new File(projectDir, "build/libs/kjar-plugin-test-1.0.0.jar"))) {
+            assertTrue(kjar.stream().anyMatch(entry -> entry.getName().startsWith("io/github/kevinwimmer/extra/")
+                    && entry.getName().endsWith(".class")));
+            assertNull(kjar.getEntry("io/github/kevinwimmer/tenant/tenant.drl"));
+        }
+        try (JarFile kjar = new JarFile(new File(projectDir, "build/libs/kjar-plugin-test-1.0.0-tenant.jar"))) {
+            assertKjarEntryExists("META-INF/kmodule.xml", kjar);
+            assertKjarEntryExists("META-INF/kmodule.info", kjar);
+            assertKjarEntryExists("META-INF/maven/io.github.kevinwimmer.test/kjar-plugin-test-tenant/pom.properties", kjar);
+            assertTrue(kjar.stream().anyMatch(entry -> entry.getName().startsWith("io/github/kevinwimmer/tenant/")
+                    && entry.getName().endsWith(".class")));
+        }
+    }
+
+    @Test
+    void testDecisionTables() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                tasks.named('compileDrools') {
+                  decisionTableCacheDirectory = layout.projectDirectory.dir('decision-tables')
+                }""");
+        writeString(new File(projectDir, "src/main/resources/io/github/kevinwimmer/rules/weekend.csv"), """
+                RuleSet,io.github.kevinwimmer.rules
+                Import,java.time.LocalDate
+                RuleTable Weekend
+                CONDITION,ACTION
+                LocalDate,
+                dayOfWeek.getValue() > $param,System.out.println($param);
+                Day,Message
+                5,5""");
+
+        BuildResult result = runBuild("build", "-info");
+        assertTrue(result.getOutput().contains("Converted 1 decision tables, 0 of them reused from the cache."));
+
+        // a clean build should reuse the DRL converted from the unchanged decision table
+        result = runBuild("clean", "build", "-info");
+        assertTrue(result.getOutput().contains("Converted 1 decision tables, 1 of them reused from the cache."));
+
+        File artifact = new File(projectDir, "/build/libs/kjar-plugin-test-1.0.0.jar");
+        try (JarFile kjar = new JarFile(artifact)) {
+            assertKjarEntryExists("io/github/kevinwimmer/rules/weekend.csv", kjar);
+            assertKjarEntryExists("META-INF/kmodule.info", kjar);
+        }
+    }
+
+    @Test
+    void testUpstreamKjar() throws IOException {
+        createProjectFiles();
+        appendString(getSettingsFile(), "include 'client'");
+        writeString(new File(projectDir, "client/build.gradle"), """
+                plugins {
+                  id 'io.github.kevin-wimmer.kjar'
+                }
+                group = 'io.github.kevinwimmer.test'
+                version = '1.0.0'
+                repositories {
+                  mavenCentral()
+                }
+                dependencies {
+                  implementation project(':')
+                }""");
+        writeString(new File(projectDir, "client/src/main/resources/io/github/kevinwimmer/client/client.drl"), """
+                package io.github.kevinwimmer.client;
+                import java.time.LocalDate;
+                rule "Is it a new year?"
+                when
+                  LocalDate(dayOfYear == 1)
+                then
+                  System.out.println("Happy new year!");
+                end""");
+
+        BuildResult result = runBuild(":client:build", "-info");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":jar").getOutcome());
+        assertTrue(result.getOutput().contains("Linking against precompiled Kie JAR io.github.kevinwimmer.test:kjar-plugin-test:1.0.0"));
+        assertTrue(new File(projectDir, "client/build/libs/client-1.0.0.jar").exists());
+    }
+
+    @Test
+    void testClasspathAbi() throws IOException {
+        createProjectFiles();
+        File javaFile = new File(projectDir, "src/main/java/io/github/kevinwimmer/facts/Greeting.java");
+        writeString(javaFile, """
+                package io.github.kevinwimmer.facts;
+                public class Greeting {
+                  public String getText() { return "Hello"; }
+                }""");
+
+        BuildResult result = runBuild("build");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":" + KjarPlugin.COMPILE_DROOLS_TASK_NAME).getOutcome());
+
+        // changing a method body leaves the ABI of the fact class unchanged
+        writeString(javaFile, """
+                package io.github.kevinwimmer.facts;
+                public class Greeting {
+                  public String getText() { return "Hello, World"; }
+                }""");
+        result = runBuild("build");
+        assertEquals(TaskOutcome.UP_TO_DATE, result.task(":" + KjarPlugin.COMPILE_DROOLS_TASK_NAME).getOutcome());
+
+        writeString(javaFile, """
+                package io.github.kevinwimmer.facts;
+                public class Greeting {
+                  public String getText() { return "Hello, World"; }
+                  public int getLength() { return getText().length(); }
+                }""");
+        result = runBuild("build");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":" + KjarPlugin.COMPILE_DROOLS_TASK_NAME).getOutcome());
+    }
+
+    @Test
+    void testGenerateKieCds() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                dependencies {
+                  runtimeOnly 'org.drools:drools-compiler:8.44.2.Final'
+                  runtimeOnly 'org.drools:drools-mvel:8.44.2.Final'
+                }""");
+
+        BuildResult result = runBuild(KjarPlugin.GENERATE_KIE_CDS_TASK_NAME);
+        assertEquals(TaskOutcome.SUCCESS, result.task(":" + KjarPlugin.GENERATE_KIE_CDS_TASK_NAME).getOutcome());
+        assertTrue(new File(projectDir, "build/libs/kjar-plugin-test-1.0.0.jsa").exists());
+
+        String classList = Files.readString(new File(projectDir, "build/kie-cds/classlist").toPath());
+        assertTrue(classList.contains("org/drools/"));
+        assertFalse(classList.contains("KieCdsTraining"));
+    }
+
+    @Test
+    void testDirectArchive() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                tasks.named('compileDrools') {
+                  directArchive = true
+                  archiveCompressionLevel = 0
+                }
+                jar {
+                  manifest {
+                    attributes('Implementation-Title': 'Kie JAR')
+                  }
+                }""");
+
+        BuildResult result = runBuild("build");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":jar").getOutcome());
+
+        File artifact = new File(projectDir, "/build/kjar/kjar-plugin-test-1.0.0.jar");
+        try (JarFile kjar = new JarFile(artifact)) {
+            assertKjarEntryExists("META-INF/MANIFEST.MF", kjar);
+            assertKjarEntryExists("io/github/kevinwimmer/rules/test.drl", kjar);
+            assertKjarEntryExists("META-INF/defaultKieBase/kbase.cache", kjar);
+            assertKjarEntryExists("META-INF/kmodule.info", kjar);
+            assertKjarEntryExists("META-INF/kmodule.xml", kjar);
+            assertEquals(ZipEntry.STORED, kjar.getEntry("META-INF/kmodule.info").getMethod());
+        }
+        assertTrue(new File(projectDir, "build/classes/drools/main/META-INF/kmodule.info").exists());
+
+        // the jar task keeps its own output and configuration
+        try (JarFile jar = new JarFile(new File(projectDir, "/build/libs/kjar-plugin-test-1.0.0.jar"))) {
+            assertEquals("Kie JAR", jar.getManifest().getMainAttributes().getValue("Implementation-Title"));
+            assertKjarEntryExists("META-INF/kmodule.xml", jar);
+        }
+    }
+
+    @Test
+    void testValidateDrools() throws IOException {
+        createProjectFiles();
+
+        BuildResult result = runBuild(KjarPlugin.VALIDATE_DROOLS_TASK_NAME);
+        assertEquals(TaskOutcome.SUCCESS, result.task(":" + KjarPlugin.VALIDATE_DROOLS_TASK_NAME).getOutcome());
+        assertNull(result.task(":" + KjarPlugin.COMPILE_DROOLS_TASK_NAME));
+
+        appendString(getDrlFile(), """
+                rule "Unknown Fact"
+                when
+                  UnknownFact()
+                then
+                end""");
+        result = createRunner(KjarPlugin.VALIDATE_DROOLS_TASK_NAME).buildAndFail();
+        assertTrue(result.getOutput().contains("io/github/kevinwimmer/rules/test.drl:20: Unable to resolve ObjectType 'UnknownFact'"));
+
+        // the files of all resource directories are validated, including patterns nested in conditional elements
+        appendString(getBuildFile(), """
+                sourceSets.main.resources.srcDir 'src/main/rules'""");
+        writeString(new File(projectDir, "src/main/rules/io/github/kevinwimmer/extra/extra.drl"), """
+                package io.github.kevinwimmer.extra;
+                import java.time.LocalDate;
+                import java.time.UnknownClock;
+                rule "No Unknown Fact"
+                when
+                  LocalDate()
+                  not UnknownFact()
+                then
+                end""");
+        result = createRunner(KjarPlugin.VALIDATE_DROOLS_TASK_NAME).buildAndFail();
+        assertTrue(result.getOutput().contains("io/github/kevinwimmer/extra/extra.drl:3: Unable to resolve import 'java.time.UnknownClock'"));
+        assertTrue(result.getOutput().contains("io/github/kevinwimmer/extra/extra.drl:7: Unable to resolve ObjectType 'UnknownFact'"));
+
+        // every source set has its own task, which also resolves the fields accessed by constraints
+        writeString(new File(projectDir, "src/test/resources/io/github/kevinwimmer/test/test.drl"), """
+                package io.github.kevinwimmer.test;
+                import java.time.LocalDate;
+                rule "Misspelled Field"
+                when
+                  LocalDate(dayOfWeak == java.time.DayOfWeek.FRIDAY)
+                then
+                end""");
+        result = createRunner("validateTestDrools").buildAndFail();
+        assertTrue(result.getOutput().contains("io/github/kevinwimmer/test/test.drl:5: Unable to resolve field 'dayOfWeak' of ObjectType 'LocalDate'"));
+    }
+
+    @Test
+    void testBenchmarkRules() throws IOException {
+        createProjectFiles();
+        appendString(getBuildFile(), """
+                tasks.named('benchmarkRules') {
+                  warmupIterations = 1
+                  iterations = 3
+                  datasets {
+                    days {
+                      factType = 'java.time.LocalDate'
+                      generator = 'java.time.LocalDate.of(2024, 1, 1).plusDays(i)'
+                      count = 100
+                    }
+                  }
+                }""");
+
+        BuildResult result = runBuild(KjarPlugin.BENCHMARK_RULES_TASK_NAME, "--update-baseline");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":" + KjarPlugin.BENCHMARK_RULES_TASK_NAME).getOutcome());
+        assertTrue(new File(projectDir, "src/benchmark/rules-baseline.properties").exists());
+
+        String results = Files.readString(new File(projectDir, "build/reports/drools/benchmarkRules/results.json").toPath());
+        assertTrue(results.contains("\"factsPerSecond\""));
+
+        // comparing against the recorded baseline must not fail with a generous threshold
+        appendString(getBuildFile(), """
+                tasks.named('benchmarkRules') {
+                  maxRegressionPercent = 10000.0
+                }""");
+        runBuild(KjarPlugin.BENCHMARK_RULES_TASK_NAME);
+    }
+
+    @Test
+    void testAnalyzeRete() throws IOException {
+        createProjectFiles();
+
+        BuildResult result = runBuild(KjarPlugin.ANALYZE_RETE_TASK_NAME);
+        assertEquals(TaskOutcome.SUCCESS, result.task(":" + KjarPlugin.ANALYZE_RETE_TASK_NAME).getOutcome());
+
+        String report = Files.readString(new File(projectDir, "build/reports/drools/analyzeRete/rete.json").toPath());
+        assertTrue(report.contains("\"Is it Friday?\""));
+
+        appendString(getBuildFile(), """
+                tasks.named('analyzeRete') {
+                  maxJoinDepth = 0
+                }""");
+        appendString(getDrlFile(), """
+                rule "Friday Address"
+                when
+                  LocalDate(dayOfWeek == DayOfWeek.FRIDAY)
+                  InetAddress()
+                then
+                end""");
+        result = createRunner(KjarPlugin.ANALYZE_RETE_TASK_NAME).buildAndFail();
+        assertTrue(result.getOutput().contains("Rete analysis exceeded"));
+    }
+
+    private BuildResult runBuild(String... arguments) {
+        return createRunner(arguments).build();
+    }
+
+    private GradleRunner createRunner(String... arguments) {
+        GradleRunner runner = GradleRunner.create();
+        runner.forwardOutput();
+        runner.forwardStdOutput(new PrintWriter(System.out));
+        runner.withPluginClasspath();
+        runner.withArguments(arguments);
+        runner.withProjectDir(projectDir);
+        return runner;
     }
 
     private void createProjectFiles() throws IOException {
-        writeString(getSettingsFile(), "rootProject.name = 'kjar-plugin-test'");
+        writeString(getSettingsFile(), """
+                rootProject.name = 'kjar-plugin-test'
+                buildCache {
+                  local {
+                    directory = new File(rootDir, 'build-cache')
+                  }
+                }""");
         writeString(getBuildFile(), """
                 plugins {
                   id 'io.github.kevin-wimmer.kjar' version '%1$s'
@@ -117,6 +707,12 @@ class KjarPluginTest {
         }
     }
 
+    private void appendString(File file, String string) throws IOException {
+        try (Writer writer = new FileWriter(file, true)) {
+            writer.write("\n" + string);
+        }
+    }
+
     private void assertKjarEntryExists(String entry, JarFile kjar) {
         assertNotNull(kjar.getEntry(entry), "File \"" + entry + "\" not found");
     }
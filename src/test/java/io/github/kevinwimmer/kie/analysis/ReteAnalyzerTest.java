@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+
+class ReteAnalyzerTest {
+
+    private static final String RULES = """
+            package org.example;
+            rule "Cross product"
+              @ticket("KIE-1")
+            when
+              String()
+              Integer()
+            then
+            end
+            rule "Indexed join"
+            when
+              String($length : length)
+              Integer(intValue == $length)
+            then
+            end
+            rule "Unindexed join"
+            when
+              String($length : length)
+              Integer(intValue != $length)
+            then
+            end
+            rule "Hot spot"
+            when
+              String($length : length)
+              Integer(intValue == $length)
+              Long(intValue == $length)
+              $count : Long() from accumulate(Short(), count(1))
+            then
+            end""";
+
+    private static ReteAnalyzer.Analysis analysis;
+
+    @BeforeAll
+    static void analyze() {
+        KieServices ks = KieServices.Factory.get();
+        KieFileSystem kfs = ks.newKieFileSystem().write("src/main/resources/org/example/rules.drl", RULES);
+        KieBuilder builder = ks.newKieBuilder(kfs).buildAll();
+        assertFalse(builder.getResults().hasMessages(Message.Level.ERROR), builder.getResults().getMessages().toString());
+        KieBase kieBase = ks.newKieContainer(builder.getKieModule().getReleaseId()).getKieBase();
+
+        analysis = new ReteAnalyzer().analyze("rules", kieBase);
+    }
+
+    @Test
+    void testNodes() {
+        assertEquals("rules", analysis.kieBase());
+        assertEquals(4, analysis.nodeCounts().get("terminal"));
+        assertEquals(1, analysis.nodeCounts().get("accumulate"));
+        assertEquals(analysis.nodes(), analysis.nodeCounts().entrySet().stream()
+                .filter(count -> !count.getKey().equals("beta"))
+                .mapToInt(count -> count.getValue())
+                .sum());
+        assertTrue(analysis.sharedNodes() > 0, "the String pattern is shared by all rules");
+        assertTrue(analysis.sharingRatio() > 1);
+    }
+
+    @Test
+    void testJoinDepths() {
+        assertEquals(1, analysis.joinDepths().get("Cross product"));
+        assertEquals(1, analysis.joinDepths().get("Indexed join"));
+        assertEquals(3, analysis.joinDepths().get("Hot spot"));
+        assertEquals(3, analysis.getMaxJoinDepth());
+    }
+
+    @Test
+    void testWarnings() {
+        assertEquals(Set.of("Cross product"), rulesWarnedOf(ReteAnalyzer.CROSS_PRODUCT));
+        assertEquals(Set.of("Unindexed join"), rulesWarnedOf(ReteAnalyzer.UNINDEXED_JOIN));
+        assertEquals(Set.of("Hot spot"), rulesWarnedOf(ReteAnalyzer.HOT_SPOT));
+        assertEquals(1, analysis.countWarnings(ReteAnalyzer.HOT_SPOT));
+        assertTrue(analysis.warnings().stream().noneMatch(warning -> warning.rule().equals("Indexed join")));
+    }
+
+    private static Set<String> rulesWarnedOf(String kind) {
+        return analysis.warnings()
+                .stream()
+                .filter(warning -> warning.kind().equals(kind))
+                .map(ReteAnalyzer.Warning::rule)
+                .collect(Collectors.toSet());
+    }
+}
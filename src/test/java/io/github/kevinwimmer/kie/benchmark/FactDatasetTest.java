@@ -0,0 +1,179 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FactDatasetTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testParseCsvWithQuotedValues() {
+        List<Map<String, Object>> records = FactDataset.parseCsv("""
+                name, amount ,day
+                "Smith, John","1.50",2024-01-01
+                "say ""hi\""",,2024-01-02
+
+                "multi
+                line",3,
+                """);
+
+        assertEquals(List.of(
+                Map.of("name", "Smith, John", "amount", "1.50", "day", "2024-01-01"),
+                Map.of("name", "say \"hi\"", "day", "2024-01-02"),
+                Map.of("name", "multi\nline", "amount", "3")), records);
+    }
+
+    @Test
+    void testParseCsvWithWindowsLineEndings() {
+        assertEquals(List.of(Map.of("name", "a", "amount", "1"), Map.of("name", "b\r\nc")),
+                FactDataset.parseCsv("name,amount\r\na,1\r\n\"b\r\nc\"\r\n"));
+    }
+
+    @Test
+    void testLoadCsvFixture() throws IOException {
+        File fixture = new File(tempDir, "orders.csv");
+        Files.writeString(fixture.toPath(), """
+                name,amount,day,count,active,level
+                "Smith, John",1.50,2024-01-01,2,true,GOLD
+                Doe,,2024-01-02,,false,SILVER""");
+
+        List<Object> facts = load(fixture);
+
+        assertEquals(List.of(
+                new Order("Smith, John", new BigDecimal("1.50"), LocalDate.of(2024, 1, 1), 2, true, Level.GOLD),
+                new Order("Doe", null, LocalDate.of(2024, 1, 2), 0, false, Level.SILVER)), facts);
+    }
+
+    @Test
+    void testLoadJsonFixture() throws IOException {
+        File fixture = new File(tempDir, "orders.json");
+        Files.writeString(fixture.toPath(), """
+                [{"name": "Smith, \\"John\\"", "amount": 1.5, "day": "2024-01-01", "count": 2, "active": true, "level": "GOLD"},
+                 {"name": "Doe", "amount": null}]""");
+
+        List<Object> facts = load(fixture);
+
+        assertEquals(List.of(
+                new Order("Smith, \"John\"", new BigDecimal("1.5"), LocalDate.of(2024, 1, 1), 2, true, Level.GOLD),
+                new Order("Doe", null, null, 0, false, null)), facts);
+    }
+
+    @Test
+    void testGenerate() {
+        FactDataset dataset = new FactDataset("names", null, null, "'fact' + i", 3);
+
+        assertEquals(List.of("fact0", "fact1", "fact2"), dataset.load(FactDatasetTest.class.getClassLoader()));
+    }
+
+    @Test
+    void testInvalidFixtures() throws IOException {
+        File fixture = new File(tempDir, "orders.csv");
+        Files.writeString(fixture.toPath(), "name,unknown\nSmith,1");
+        ClassLoader classLoader = FactDatasetTest.class.getClassLoader();
+
+        assertThrows(IllegalArgumentException.class, () -> load(fixture));
+        assertThrows(IllegalArgumentException.class,
+                () -> new FactDataset("orders", "org.example.Missing", fixture, null, 0).load(classLoader));
+    }
+
+    private static List<Object> load(File fixture) {
+        return new FactDataset("orders", Order.class.getName(), fixture, null, 0).load(FactDatasetTest.class.getClassLoader());
+    }
+
+    public enum Level {
+        SILVER, GOLD
+    }
+
+    public static class Order {
+
+        private String name;
+        private BigDecimal amount;
+        private LocalDate day;
+        private int count;
+        private boolean active;
+        private Level level;
+
+        public Order() {
+        }
+
+        Order(String name, BigDecimal amount, LocalDate day, int count, boolean active, Level level) {
+            this.name = name;
+            this.amount = amount;
+            this.day = day;
+            this.count = count;
+            this.active = active;
+            this.level = level;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public void setDay(LocalDate day) {
+            this.day = day;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public void setLevel(Level level) {
+            this.level = level;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Order other && Objects.equals(name, other.name)
+                    && Objects.equals(amount, other.amount) && Objects.equals(day, other.day)
+                    && count == other.count && active == other.active && level == other.level;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, amount, day, count, active, level);
+        }
+
+        @Override
+        public String toString() {
+            return String.join(",", name, String.valueOf(amount), String.valueOf(day), String.valueOf(count),
+                    String.valueOf(active), String.valueOf(level));
+        }
+    }
+}
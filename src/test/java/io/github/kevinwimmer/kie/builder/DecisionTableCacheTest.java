@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.api.KieServices;
+
+class DecisionTableCacheTest {
+
+    private static final String SOURCE = "org/example/weekend.csv";
+
+    private static final byte[] DECISION_TABLE = """
+            RuleSet,org.example
+            Import,java.time.LocalDate
+            RuleTable Weekend
+            CONDITION,ACTION
+            LocalDate,
+            dayOfWeek.getValue() > $param,System.out.println($param);
+            Day,Message
+            5,5""".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File cacheDir;
+
+    @Test
+    void testIsDecisionTable() {
+        assertTrue(DecisionTableCache.isDecisionTable("org/example/rules.xls"));
+        assertTrue(DecisionTableCache.isDecisionTable("org/example/rules.XLSX"));
+        assertTrue(DecisionTableCache.isDecisionTable(SOURCE));
+        assertFalse(DecisionTableCache.isDecisionTable("org/example/rules.drl"));
+        assertFalse(DecisionTableCache.isDecisionTable("org/example/weekend.csv.properties"));
+        assertEquals("org/example/weekend.csv.drl", DecisionTableCache.toDrlSource(SOURCE));
+    }
+
+    @Test
+    void testConvertedDrlIsCached() {
+        Map<String, byte[]> sources = Map.of(SOURCE, DECISION_TABLE, "org/example/rules.drl", new byte[0]);
+
+        DecisionTableCache cache = createCache();
+        Map<String, String> drls = cache.convert(sources);
+        assertEquals(1, drls.size());
+        assertTrue(drls.get(SOURCE).contains("package org.example;"), drls.get(SOURCE));
+        assertTrue(drls.get(SOURCE).contains("dayOfWeek.getValue() > 5"), drls.get(SOURCE));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        DecisionTableCache reused = createCache();
+        assertEquals(drls, reused.convert(sources));
+        assertEquals(1, reused.getHits());
+        assertEquals(0, reused.getMisses());
+    }
+
+    @Test
+    void testChangedConfigurationIsConvertedAgain() {
+        createCache().convert(Map.of(SOURCE, DECISION_TABLE));
+
+        DecisionTableCache cache = createCache();
+        cache.convert(Map.of(SOURCE, DECISION_TABLE, SOURCE + ".properties", "trimCell=false".getBytes(StandardCharsets.ISO_8859_1)));
+
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cacheDir.listFiles((dir, name) -> name.endsWith(".drl")).length);
+    }
+
+    private DecisionTableCache createCache() {
+        return new DecisionTableCache(cacheDir, KieServices.Factory.get().getResources());
+    }
+}
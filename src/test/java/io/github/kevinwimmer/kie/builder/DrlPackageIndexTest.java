@@ -0,0 +1,169 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DrlPackageIndexTest {
+
+    private static final String UTIL = """
+            package org.example.util;
+            import java.time.LocalDate;
+            function boolean isWeekend(LocalDate date) {
+              return date.getDayOfWeek().getValue() >= 6;
+            }""";
+
+    private static final String WEEKEND = """
+            package org.example.weekend;
+            import java.time.LocalDate;
+            import function org.example.util.IsWeekend.isWeekend;
+            rule "Weekend"
+              @ticket("KIE-1")
+            when
+              $date : LocalDate(eval(isWeekend($date)))
+            then
+            end""";
+
+    private static final String REPORTS = """
+            package org.example.reports
+            rule "Weekend report"
+            when
+              $date : java.time.LocalDate()
+              org.example.weekend.Holiday(date == $date)
+            then
+              $date.getDayOfWeek().getValue();
+            end""";
+
+    private static final String TYPES = """
+            package org.example.types;
+            declare Order
+              id : long
+            end""";
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testPackageOf() {
+        assertEquals("org.example.reports", DrlPackageIndex.packageOf("org/example/other/reports.drl", REPORTS));
+        assertEquals("org.example.other", DrlPackageIndex.packageOf("org/example/other/rules.drl", "rule \"Empty\" when then end"));
+        assertEquals("", DrlPackageIndex.packageOf("rules.drl", ""));
+        assertEquals("org.example", DrlPackageIndex.packageOfClassFile("org/example/Rule_Foo.class"));
+        assertEquals("org.example", DrlPackageIndex.packageOfClass("org.example.Order"));
+        assertEquals("", DrlPackageIndex.packageOfClass("Order"));
+    }
+
+    @Test
+    void testUsedPackages() {
+        assertEquals(Set.of("java.time"), DrlPackageIndex.usedPackages(UTIL));
+        assertEquals(Set.of("java.time", "org.example.weekend"), DrlPackageIndex.usedPackages(REPORTS));
+        assertTrue(DrlPackageIndex.usedPackages(WEEKEND).containsAll(Set.of("java.time", "org.example.util")));
+        assertTrue(DrlPackageIndex.usedPackages("import org.example.model.*;").contains("org.example.model"));
+    }
+
+    @Test
+    void testCollectDependencyClosure() {
+        DrlPackageIndex index = createIndex();
+
+        assertEquals(Set.of("org.example.util", "org.example.weekend", "org.example.reports"),
+                index.collectDependencyClosure(Set.of("org.example.util")));
+        assertEquals(Set.of("org.example.util", "org.example.weekend", "org.example.reports"),
+                index.collectDependencyClosure(Set.of("org.example.weekend")));
+        assertEquals(Set.of("org.example.util", "org.example.weekend", "org.example.reports"),
+                index.collectDependencyClosure(Set.of("org.example.reports")));
+        assertEquals(Set.of("org.example.types"), index.collectDependencyClosure(Set.of("org.example.types")));
+    }
+
+    @Test
+    void testClearPackage() {
+        DrlPackageIndex index = createIndex();
+        index.putClasses("org.example.types", Set.of("org/example/types/Order.class"));
+
+        index.clearPackage("org.example.weekend");
+        index.clearPackage("org.example.types");
+
+        assertTrue(index.getUsedPackages("org.example.weekend").isEmpty());
+        assertTrue(index.getClasses("org.example.types").isEmpty());
+        assertFalse(index.declaresTypes("org.example.types"));
+        assertEquals(Set.of("org.example.util"), index.collectDependencyClosure(Set.of("org.example.util")));
+    }
+
+    @Test
+    void testStoreAndLoad() {
+        assertNull(DrlPackageIndex.load(tempDir));
+        DrlPackageIndex index = createIndex();
+        index.putClasses("org.example.types", Set.of("org/example/types/Order.class", "org/example/types/Rules.class"));
+        index.putClasses("org.example.util", Set.of());
+        index.putResource("org/example/reports/weekend.csv.drl", "package org.example.reports;");
+        index.store(tempDir);
+
+        DrlPackageIndex loaded = DrlPackageIndex.load(tempDir);
+
+        assertEquals(index.getPackagesBySource(), loaded.getPackagesBySource());
+        assertEquals(index.getClasses("org.example.types"), loaded.getClasses("org.example.types"));
+        assertTrue(loaded.getClasses("org.example.util").isEmpty());
+        assertTrue(loaded.declaresTypes("org.example.types"));
+        assertFalse(loaded.declaresTypes("org.example.util"));
+        assertTrue(loaded.containsOtherResources("org.example.reports"));
+        assertFalse(loaded.containsOtherResources("org.example.util"));
+        assertEquals(index.getUsedPackages("org.example.reports"), loaded.getUsedPackages("org.example.reports"));
+        assertEquals(index.collectDependencyClosure(Set.of("org.example.util")),
+                loaded.collectDependencyClosure(Set.of("org.example.util")));
+    }
+
+    @Test
+    void testOtherResources() {
+        DrlPackageIndex index = createIndex();
+
+        assertEquals("org.example.reports", index.putResource("org/example/other/weekend.csv.drl", "package org.example.reports;"));
+        assertEquals("org.example.dsl", index.putResource("org/example/dsl/rules.dslr", "rule \"Weekend\" when then end"));
+
+        assertTrue(index.containsOtherResources("org.example.reports"));
+        assertTrue(index.containsOtherResources("org.example.dsl"));
+        assertFalse(index.containsOtherResources("org.example.util"));
+        assertEquals(Set.of("org/example/util/util.drl", "org/example/weekend/weekend.drl", "org/example/reports/reports.drl",
+                "org/example/types/types.drl"), index.getPackagesBySource().keySet());
+        index.clearPackage("org.example.reports");
+        assertTrue(index.containsOtherResources("org.example.reports"));
+    }
+
+    @Test
+    void testIndexOfAnotherVersionIsNotLoaded() throws IOException {
+        Files.writeString(new File(tempDir, "drl-packages.properties").toPath(), "source.org/example/util/util.drl=org.example.util\n");
+
+        assertNull(DrlPackageIndex.load(tempDir));
+    }
+
+    private static DrlPackageIndex createIndex() {
+        DrlPackageIndex index = new DrlPackageIndex();
+        assertEquals("org.example.util", index.putSource("org/example/util/util.drl", UTIL));
+        assertEquals("org.example.weekend", index.putSource("org/example/weekend/weekend.drl", WEEKEND));
+        assertEquals("org.example.reports", index.putSource("org/example/reports/reports.drl", REPORTS));
+        assertEquals("org.example.types", index.putSource("org/example/types/types.drl", TYPES));
+        return index;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class DrlSharderTest {
+
+    private static final String SOURCE = "org/example/rules.drl";
+
+    private static final String RULES = """
+            package org.example;
+            import java.time.LocalDate;
+            function boolean isWeekend(LocalDate date) {
+              return date.getDayOfWeek().getValue() >= 6;
+            }
+            query leapDays
+              LocalDate(leapYear)
+            end
+            rule "Weekend"
+              @ticket("KIE-1")
+            when
+              $date : LocalDate()
+              eval(isWeekend($date))
+            then
+            end
+            rule "Leap weekend" extends "Weekend"
+            when
+              LocalDate(this == $date, leapYear)
+            then
+            end
+            rule "Leap day"
+              @ticket("KIE-2")
+            when
+              leapDays()
+            then
+            end""";
+
+    @Test
+    void testSmallPackagesAreNotSharded() {
+        assertTrue(new DrlSharder(3).shard(Map.of(SOURCE, RULES)).isEmpty());
+    }
+
+    @Test
+    void testUnparsableSourcesAreNotSharded() {
+        assertTrue(new DrlSharder(1).shard(Map.of(SOURCE, RULES, "org/example/broken.drl", "rule \"Broken\" when")).isEmpty());
+    }
+
+    @Test
+    void testExtendedRulesStayInTheSameShard() {
+        List<Map<String, String>> shards = new DrlSharder(1).shard(Map.of(SOURCE, RULES)).packages().get("org.example");
+
+        assertEquals(2, shards.size());
+        String first = shards.get(0).get(SOURCE);
+        assertTrue(first.contains("rule \"Weekend\"") && first.contains("rule \"Leap weekend\""));
+        assertFalse(first.contains("rule \"Leap day\""));
+        assertFalse(first.contains("KIE-2"), "annotations of rules in other shards must be removed with them");
+        String second = shards.get(1).get(SOURCE);
+        assertTrue(second.contains("rule \"Leap day\"") && second.contains("KIE-2"));
+        assertFalse(second.contains("rule \"Weekend\"") || second.contains("rule \"Leap weekend\""));
+        assertFalse(second.contains("KIE-1"));
+    }
+
+    @Test
+    void testShardsKeepDefinitionsAndLineNumbers() {
+        for (Map<String, String> shard : new DrlSharder(1).shard(Map.of(SOURCE, RULES)).packages().get("org.example")) {
+            String content = shard.get(SOURCE);
+            assertTrue(content.contains("function boolean isWeekend(LocalDate date)"));
+            assertTrue(content.contains("query leapDays"));
+            assertEquals(RULES.split("\n", -1).length, content.split("\n", -1).length);
+        }
+    }
+
+    @Test
+    void testDefinitionsOmitRulesAndQueries() {
+        String other = """
+                package org.example.other;
+                declare Holiday
+                  date : java.time.LocalDate
+                end
+                rule "Holiday"
+                when
+                  Holiday()
+                then
+                end""";
+        DrlSharder.Result result = new DrlSharder(1).shard(Map.of(SOURCE, RULES, "org/example/other/other.drl", other));
+
+        assertEquals(Set.of("org.example"), result.packages().keySet());
+        String definitions = result.definitions().get("org/example/other/other.drl");
+        assertTrue(definitions.contains("declare Holiday"));
+        assertFalse(definitions.contains("rule \"Holiday\""));
+        String packageDefinitions = result.definitions().get(SOURCE);
+        assertTrue(packageDefinitions.contains("function boolean isWeekend(LocalDate date)"));
+        assertFalse(packageDefinitions.contains("query leapDays") || packageDefinitions.contains("rule "));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class DrlValidatorTest {
+
+    private static final String TYPES = """
+            package org.example.model;
+            declare Order
+              id : long
+            end""";
+
+    private final DrlValidator validator = new DrlValidator(DrlValidatorTest.class.getClassLoader());
+
+    @Test
+    void testValidSources() {
+        String rules = """
+                package org.example.rules;
+                import org.example.model.Order;
+                import java.time.LocalDate;
+                declare Holiday
+                  date : LocalDate
+                end
+                rule "Orders on holidays"
+                  @ticket("KIE-1")
+                  salience 10
+                when
+                  Order()
+                  exists Holiday()
+                  not LocalDate(leapYear)
+                  $count : Long() from accumulate(String(), count(1))
+                then
+                end""";
+        String wildcard = """
+                package org.example.reports;
+                import org.example.model.*;
+                rule "Order report"
+                  @ticket("KIE-2")
+                when
+                  Order()
+                  java.time.LocalDate()
+                then
+                end""";
+
+        assertEquals(List.of(), validator.validate(Map.of(
+                "org/example/model/types.drl", TYPES,
+                "org/example/rules/rules.drl", rules,
+                "org/example/reports/reports.drl", wildcard)));
+    }
+
+    @Test
+    void testUnresolvedTypes() {
+        String rules = """
+                package org.example.rules;
+                import java.time.LocalDate;
+                import java.time.UnknownClock;
+                rule "Unknown facts"
+                  @ticket("KIE-1")
+                when
+                  not UnknownFact()
+                  $total : Number() from accumulate(UnknownValue($v : value), sum($v))
+                  $all : java.util.List() from collect(UnknownItem())
+                then
+                end""";
+
+        List<String> problems = validator.validate(Map.of("org/example/rules/rules.drl", rules, "org/example/model/types.drl", TYPES))
+                .stream()
+                .map(DrlValidator.Problem::toString)
+                .toList();
+
+        assertEquals(List.of(
+                "org/example/rules/rules.drl:3: Unable to resolve import 'java.time.UnknownClock'",
+                "org/example/rules/rules.drl:7: Unable to resolve ObjectType 'UnknownFact' in rule \"Unknown facts\"",
+                "org/example/rules/rules.drl:8: Unable to resolve ObjectType 'UnknownValue' in rule \"Unknown facts\"",
+                "org/example/rules/rules.drl:9: Unable to resolve ObjectType 'UnknownItem' in rule \"Unknown facts\""), problems);
+    }
+
+    @Test
+    void testUnresolvedFields() {
+        String rules = """
+                package org.example.rules;
+                import org.example.model.Order;
+                import java.time.DayOfWeek;
+                import java.time.LocalDate;
+                global java.util.List results;
+                rule "Unknown fields"
+                when
+                  $order : Order(id > 0, $id : id, reference == null)
+                  LocalDate(dayOfWeek == DayOfWeek.FRIDAY, leapYear, month.value > 1, dayOfWeak == java.time.DayOfWeek.MONDAY)
+                  String(length() > 0, this != $order, results != null, isEmpty() == false)
+                then
+                end""";
+
+        List<String> problems = validator.validate(Map.of("org/example/rules/rules.drl", rules, "org/example/model/types.drl", TYPES))
+                .stream()
+                .map(DrlValidator.Problem::toString)
+                .toList();
+
+        assertEquals(List.of(
+                "org/example/rules/rules.drl:8: Unable to resolve field 'reference' of ObjectType 'Order' in rule \"Unknown fields\"",
+                "org/example/rules/rules.drl:9: Unable to resolve field 'dayOfWeak' of ObjectType 'LocalDate' in rule \"Unknown fields\""), problems);
+    }
+
+    @Test
+    void testDslrSources() {
+        String dsl = """
+                [when]There is an order with id {id}=Order(id == {id})
+                [when]There is an order with number {number}=Order(number == {number})""";
+        String rules = """
+                package org.example.rules;
+                import org.example.model.Order;
+                rule "Known order"
+                when
+                  There is an order with id 1
+                then
+                end
+                rule "Unknown field"
+                when
+                  There is an order with number 1
+                then
+                end""";
+
+        List<DrlValidator.Problem> problems = validator.validate(Map.of(
+                "org/example/rules/orders.dsl", dsl,
+                "org/example/rules/orders.dslr", rules,
+                "org/example/model/types.drl", TYPES));
+
+        assertEquals(1, problems.size(), problems.toString());
+        assertEquals("org/example/rules/orders.dslr", problems.get(0).source());
+        assertTrue(problems.get(0).message().startsWith("Unable to resolve field 'number' of ObjectType 'Order'"), problems.toString());
+    }
+
+    @Test
+    void testSyntaxErrors() {
+        List<DrlValidator.Problem> problems = validator.validate(Map.of(
+                "org/example/rules/broken.drl", """
+                        package org.example.rules;
+                        rule "Broken"
+                        when
+                          String(
+                        then
+                        end""",
+                "org/example/model/types.drl", TYPES));
+
+        assertFalse(problems.isEmpty());
+        assertTrue(problems.stream().allMatch(problem -> problem.source().equals("org/example/rules/broken.drl")), problems.toString());
+    }
+}
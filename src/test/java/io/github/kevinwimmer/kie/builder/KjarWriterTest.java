@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.builder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class KjarWriterTest {
+
+    private static final byte[] RULES = "rules".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KMODULE = "<kmodule/>".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testEntriesAreSorted() throws IOException {
+        File archive = new File(tempDir, "libs/rules.jar");
+        new KjarWriter(-1)
+                .add("org/example/Rules.class", RULES)
+                .add("META-INF/MANIFEST.MF", RULES)
+                .add("META-INF/kmodule.xml", KMODULE)
+                .write(archive);
+
+        try (ZipFile zip = new ZipFile(archive)) {
+            List<String> names = new ArrayList<>();
+            Collections.list(zip.entries()).forEach(entry -> names.add(entry.getName()));
+            assertEquals(List.of("META-INF/", "META-INF/MANIFEST.MF", "META-INF/kmodule.xml", "org/", "org/example/",
+                    "org/example/Rules.class"), names);
+            assertEquals("Manifest-Version: 1.0\r\n\r\n",
+                    new String(zip.getInputStream(zip.getEntry("META-INF/MANIFEST.MF")).readAllBytes(), StandardCharsets.UTF_8));
+            assertArrayEquals(KMODULE, zip.getInputStream(zip.getEntry("META-INF/kmodule.xml")).readAllBytes());
+        }
+    }
+
+    @Test
+    void testFirstContentTakesPrecedence() throws IOException {
+        File dir = new File(tempDir, "classes");
+        Files.createDirectories(new File(dir, "org/example").toPath());
+        Files.write(new File(dir, "org/example/Rules.class").toPath(), KMODULE);
+        Files.write(new File(dir, "org/example/Model.class").toPath(), KMODULE);
+        File archive = new File(tempDir, "rules.jar");
+
+        new KjarWriter(KjarWriter.STORED)
+                .addAll(Map.of("org/example/Rules.class", RULES))
+                .addDirectory(dir)
+                .addDirectory(new File(tempDir, "missing"))
+                .add("org/example/Model.class", RULES)
+                .write(archive);
+
+        try (ZipFile zip = new ZipFile(archive)) {
+            assertArrayEquals(RULES, zip.getInputStream(zip.getEntry("org/example/Rules.class")).readAllBytes());
+            assertArrayEquals(KMODULE, zip.getInputStream(zip.getEntry("org/example/Model.class")).readAllBytes());
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                assertEquals(ZipEntry.STORED, entry.getMethod(), entry.getName());
+            }
+        }
+    }
+
+    @Test
+    void testArchivesAreReproducible() throws IOException {
+        File first = new File(tempDir, "first.jar");
+        File second = new File(tempDir, "second.jar");
+
+        new KjarWriter(9).add("org/example/Rules.class", RULES).add("META-INF/kmodule.xml", KMODULE).write(first);
+        new KjarWriter(9).add("META-INF/kmodule.xml", KMODULE).add("org/example/Rules.class", RULES).write(second);
+
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+    }
+}
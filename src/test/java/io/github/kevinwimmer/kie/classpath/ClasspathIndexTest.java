@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.classpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.kevinwimmer.kie.util.CacheCleanup;
+
+class ClasspathIndexTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testToClassName() {
+        assertEquals("org.example.Order", ClasspathIndex.toClassName("org/example/Order.class"));
+        assertEquals("org.example.Order$Line", ClasspathIndex.toClassName("org/example/Order$Line.class"));
+        assertEquals("org.example.Order", ClasspathIndex.toClassName("META-INF/versions/17/org/example/Order.class"));
+        assertNull(ClasspathIndex.toClassName("module-info.class"));
+        assertNull(ClasspathIndex.toClassName("org/example/package-info.class"));
+        assertNull(ClasspathIndex.toClassName("org/example/rules.drl"));
+    }
+
+    @Test
+    void testCreate() throws IOException {
+        File jar = writeJar(new File(tempDir, "model.jar"), "org/example/Order.class", "META-INF/MANIFEST.MF");
+        File classes = new File(tempDir, "classes");
+        Files.createDirectories(new File(classes, "org/example/rules").toPath());
+        Files.write(new File(classes, "org/example/rules/Rules.class").toPath(), new byte[0]);
+        Files.write(new File(classes, "org/example/rules/rules.drl").toPath(), new byte[0]);
+        File cacheDir = new File(tempDir, "cache");
+        List<File> classpath = List.of(jar, classes, new File(tempDir, "missing.jar"));
+
+        ClasspathIndex index = ClasspathIndex.create(classpath, cacheDir);
+
+        assertTrue(index.containsClass("org.example.Order"));
+        assertTrue(index.containsClass("org.example.rules.Rules"));
+        assertFalse(index.containsClass("org.example.Missing"));
+        assertEquals(2, index.size());
+        assertEquals(1, index.getIndexedJars());
+        assertEquals(0, index.getReusedJars());
+
+        ClasspathIndex reused = ClasspathIndex.create(classpath, cacheDir);
+        assertTrue(reused.containsClass("org.example.Order"));
+        assertEquals(0, reused.getIndexedJars());
+        assertEquals(1, reused.getReusedJars());
+    }
+
+    @Test
+    void testChangedJarsAreIndexedAgain() throws IOException {
+        File jar = new File(tempDir, "model.jar");
+        File cacheDir = new File(tempDir, "cache");
+        ClasspathIndex.create(List.of(writeJar(jar, "org/example/Order.class")), cacheDir);
+
+        ClasspathIndex index = ClasspathIndex.create(List.of(writeJar(jar, "org/example/Invoice.class")), cacheDir);
+
+        assertTrue(index.containsClass("org.example.Invoice"));
+        assertFalse(index.containsClass("org.example.Order"));
+        assertEquals(1, index.getIndexedJars());
+    }
+
+    @Test
+    void testReusedIndexesAreMarkedAsUsed() throws IOException {
+        File cacheDir = new File(tempDir, "cache");
+        List<File> classpath = List.of(writeJar(new File(tempDir, "model.jar"), "org/example/Order.class"));
+        ClasspathIndex.create(classpath, cacheDir);
+        File[] cached = cacheDir.listFiles();
+        assertEquals(1, cached.length);
+        long unused = System.currentTimeMillis() - Duration.ofDays(31).toMillis();
+        Files.setLastModifiedTime(cached[0].toPath(), FileTime.fromMillis(unused));
+
+        assertEquals(1, ClasspathIndex.create(classpath, cacheDir).getReusedJars());
+        assertTrue(Files.getLastModifiedTime(cached[0].toPath()).toMillis() > unused);
+        assertEquals(0, CacheCleanup.deleteUnusedEntries(cacheDir.toPath(), Duration.ofDays(30)));
+        assertTrue(cached[0].exists());
+    }
+
+    @Test
+    void testFingerprint() throws IOException {
+        File jar = writeJar(new File(tempDir, "model.jar"), "org/example/Order.class");
+        File classes = new File(tempDir, "classes");
+        File packageDir = new File(classes, "org/example/rules");
+        Files.createDirectories(packageDir.toPath());
+        File classFile = new File(packageDir, "Rules.class");
+        File resource = new File(packageDir, "rules.drl");
+        Files.write(classFile.toPath(), new byte[0]);
+        Files.write(resource.toPath(), new byte[0]);
+        List<File> classpath = List.of(jar, classes);
+        String fingerprint = ClasspathIndex.fingerprint(classpath);
+        assertEquals(fingerprint, ClasspathIndex.fingerprint(classpath));
+
+        // a recompiled class file replaces the old one, which touches its directory
+        Files.delete(classFile.toPath());
+        Files.write(classFile.toPath(), new byte[1]);
+        Files.setLastModifiedTime(packageDir.toPath(), FileTime.fromMillis(packageDir.lastModified() + 1000));
+        String recompiled = ClasspathIndex.fingerprint(classpath);
+        assertNotEquals(fingerprint, recompiled);
+
+        Files.write(resource.toPath(), new byte[1]);
+        String changedResource = ClasspathIndex.fingerprint(classpath);
+        assertNotEquals(recompiled, changedResource);
+
+        Files.setLastModifiedTime(jar.toPath(), FileTime.fromMillis(jar.lastModified() + 1000));
+        assertNotEquals(changedResource, ClasspathIndex.fingerprint(classpath));
+    }
+
+    static File writeJar(File jar, String... entries) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (String entry : entries) {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
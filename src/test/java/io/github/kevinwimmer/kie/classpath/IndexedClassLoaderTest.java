@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.classpath;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IndexedClassLoaderTest {
+
+    private static final String FACT_CLASS = Fact.class.getName().replace('.', '/') + ".class";
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testLoadClass() throws Exception {
+        File jar = writeJar();
+        ClasspathIndex index = ClasspathIndex.create(List.of(jar), new File(tempDir, "cache"));
+
+        try (IndexedClassLoader loader = new IndexedClassLoader(new URL[] {jar.toURI().toURL()}, null, index)) {
+            Class<?> fact = loader.loadClass(Fact.class.getName());
+            assertEquals(loader, fact.getClassLoader());
+            assertNotNull(loader.getResource(FACT_CLASS));
+            assertNotNull(loader.getResource("org/example/rules.drl"));
+            assertEquals(1, loader.getHits());
+            assertEquals(0, loader.getMisses());
+
+            assertThrows(ClassNotFoundException.class, () -> loader.loadClass("org.example.Missing"));
+            assertNull(loader.getResource("org/example/Missing.class"));
+            assertEquals(2, loader.getMisses());
+            assertEquals(index, loader.getIndex());
+        }
+    }
+
+    @Test
+    void testClassFilesAreCached() throws Exception {
+        File classes = new File(tempDir, "classes");
+        File classFile = new File(classes, FACT_CLASS);
+        Files.createDirectories(classFile.getParentFile().toPath());
+        try (InputStream in = Fact.class.getClassLoader().getResourceAsStream(FACT_CLASS)) {
+            Files.copy(in, classFile.toPath());
+        }
+        byte[] bytes = Files.readAllBytes(classFile.toPath());
+        ClasspathIndex index = ClasspathIndex.create(List.of(classes), new File(tempDir, "cache"));
+
+        try (IndexedClassLoader loader = new IndexedClassLoader(new URL[] {classes.toURI().toURL()}, null, index)) {
+            try (InputStream in = loader.getResourceAsStream(FACT_CLASS)) {
+                assertArrayEquals(bytes, in.readAllBytes());
+            }
+            Files.delete(classFile.toPath());
+            try (InputStream in = loader.getResourceAsStream(FACT_CLASS)) {
+                assertArrayEquals(bytes, in.readAllBytes());
+            }
+            assertNull(loader.getResourceAsStream("org/example/Missing.class"));
+        }
+    }
+
+    private File writeJar() throws IOException {
+        File jar = new File(tempDir, "facts.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar));
+             InputStream in = Fact.class.getClassLoader().getResourceAsStream(FACT_CLASS)) {
+            zip.putNextEntry(new ZipEntry(FACT_CLASS));
+            in.transferTo(zip);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("org/example/rules.drl"));
+            zip.closeEntry();
+        }
+        return jar;
+    }
+
+    public static class Fact {
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.resources;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GeneratedFileWriterTest {
+
+    private static final byte[] RULES = "rules".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MODEL = "model".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File root;
+
+    @Test
+    void testWrite() throws IOException {
+        GeneratedFileWriter writer = new GeneratedFileWriter(root);
+
+        writer.write(Map.of("org/example/Rules.class", RULES, "org/example/model/Model.class", MODEL));
+
+        assertArrayEquals(RULES, Files.readAllBytes(root.toPath().resolve("org/example/Rules.class")));
+        assertArrayEquals(MODEL, Files.readAllBytes(root.toPath().resolve("org/example/model/Model.class")));
+        assertEquals(2, writer.getFileCount());
+        assertEquals(2, writer.getWrittenCount());
+        assertEquals(0, writer.getUnchangedCount());
+        assertEquals(RULES.length + MODEL.length, writer.getWrittenBytes());
+        assertEquals(2, writer.getContents().size());
+        assertArrayEquals(RULES, writer.getContents().get("org/example/Rules.class"));
+    }
+
+    @Test
+    void testUnchangedFilesAreNotRewritten() throws IOException {
+        new GeneratedFileWriter(root).write(Map.of("org/example/Rules.class", RULES, "org/example/Model.class", MODEL));
+        FileTime lastModified = FileTime.fromMillis(1_000_000_000_000L);
+        File rules = new File(root, "org/example/Rules.class");
+        File model = new File(root, "org/example/Model.class");
+        Files.setLastModifiedTime(rules.toPath(), lastModified);
+        Files.setLastModifiedTime(model.toPath(), lastModified);
+
+        GeneratedFileWriter writer = new GeneratedFileWriter(root);
+        writer.write(Map.of("org/example/Rules.class", RULES, "org/example/Model.class", RULES));
+
+        assertEquals(1, writer.getWrittenCount());
+        assertEquals(1, writer.getUnchangedCount());
+        assertEquals(RULES.length, writer.getWrittenBytes());
+        assertEquals(lastModified, Files.getLastModifiedTime(rules.toPath()));
+        assertArrayEquals(RULES, Files.readAllBytes(model.toPath()));
+        assertEquals(2, writer.getContents().size());
+    }
+
+    @Test
+    void testDeleteStaleFiles() throws IOException {
+        new GeneratedFileWriter(root).write(Map.of(
+                "org/example/Rules.class", RULES,
+                "org/example/stale/Stale.class", MODEL,
+                "META-INF/kmodule.info", MODEL));
+
+        GeneratedFileWriter writer = new GeneratedFileWriter(root);
+        writer.write(Map.of("org/example/Rules.class", RULES, "META-INF/kmodule.info", MODEL));
+
+        assertEquals(1, writer.deleteStaleFiles());
+        assertTrue(new File(root, "org/example/Rules.class").isFile());
+        assertTrue(new File(root, "META-INF/kmodule.info").isFile());
+        assertFalse(new File(root, "org/example/stale").exists());
+        assertEquals(2, writer.getFileCount());
+    }
+
+    @Test
+    void testDeleteStaleFilesWithoutRootDirectory() {
+        assertEquals(0, new GeneratedFileWriter(new File(root, "missing")).deleteStaleFiles());
+    }
+}
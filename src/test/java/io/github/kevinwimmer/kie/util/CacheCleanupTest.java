@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+
+package io.github.kevinwimmer.kie.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheCleanupTest {
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void testUnusedEntriesAreDeleted() throws IOException {
+        Path used = Files.writeString(cacheDir.resolve("used.drl"), "");
+        Path unused = Files.writeString(cacheDir.resolve("unused.drl"), "");
+        Files.setLastModifiedTime(unused, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(31).toMillis()));
+
+        assertEquals(1, CacheCleanup.deleteUnusedEntries(cacheDir, Duration.ofDays(30)));
+        assertTrue(Files.exists(used));
+        assertFalse(Files.exists(unused));
+        assertTrue(Files.exists(cacheDir.resolve(CacheCleanup.MARKER_FILE_NAME)));
+    }
+
+    @Test
+    void testCleanupRunsAtMostOnceADay() throws IOException {
+        assertEquals(0, CacheCleanup.deleteUnusedEntries(cacheDir, Duration.ofDays(30)));
+        Path unused = Files.writeString(cacheDir.resolve("unused.drl"), "");
+        Files.setLastModifiedTime(unused, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(31).toMillis()));
+
+        assertEquals(0, CacheCleanup.deleteUnusedEntries(cacheDir, Duration.ofDays(30)));
+        assertTrue(Files.exists(unused));
+
+        Path marker = cacheDir.resolve(CacheCleanup.MARKER_FILE_NAME);
+        Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(2).toMillis()));
+        assertEquals(1, CacheCleanup.deleteUnusedEntries(cacheDir, Duration.ofDays(30)));
+    }
+
+    @Test
+    void testMissingDirectoryIsIgnored() {
+        assertEquals(0, CacheCleanup.deleteUnusedEntries(cacheDir.resolve("missing"), Duration.ofDays(30)));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2023-2024 Kevin Wimmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package io.github.kevinwimmer.kie.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class JsonTest {
+
+    @Test
+    void testWriteNested() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("name", "rules");
+        value.put("count", 2);
+        value.put("ratio", 0.5);
+        value.put("enabled", true);
+        value.put("missing", null);
+        value.put("empty", Map.of());
+        value.put("list", List.of(1, List.of()));
+
+        assertEquals("""
+                {
+                  "name": "rules",
+                  "count": 2,
+                  "ratio": 0.5,
+                  "enabled": true,
+                  "missing": null,
+                  "empty": {},
+                  "list": [
+                    1,
+                    []
+                  ]
+                }
+                """, Json.write(value));
+    }
+
+    @Test
+    void testWriteEscapes() {
+        assertEquals("\"say \\\"hi\\\" \\\\ \\b\\f\\n\\r\\t \\u0001 \u00e9\"\n",
+                Json.write("say \"hi\" \\ \b\f\n\r\t \u0001 \u00e9"));
+        assertEquals("{\n  \"a\\\"b\": 1\n}\n", Json.write(Map.of("a\"b", 1)));
+    }
+
+    @Test
+    void testWriteNonFiniteNumbers() {
+        assertEquals("[\n  null,\n  null\n]\n", Json.write(Arrays.asList(Double.NaN, Float.POSITIVE_INFINITY)));
+    }
+
+    @Test
+    void testRoundTrip() {
+        String text = "say \"hi\" \\ \b\f\n\r\t \u0001 \u00e9 rule \"Is it Friday?\"";
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put(text, List.of(text, 42, false));
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put(text, List.of(text, new BigDecimal(42), false));
+        assertEquals(expected, Json.parse(Json.write(value)));
+    }
+
+    @Test
+    void testParseObjects() {
+        List<Map<String, Object>> objects = Json.parseObjects("""
+                [{"day": "2024-01-01", "count": 1.5e2, "valid": true, "note": null},
+                 {"day": "\\u0032024-01-02"}]""");
+
+        assertEquals(2, objects.size());
+        assertEquals("2024-01-01", objects.get(0).get("day"));
+        assertEquals(new BigDecimal("1.5e2"), objects.get(0).get("count"));
+        assertEquals(Boolean.TRUE, objects.get(0).get("valid"));
+        assertTrue(objects.get(0).containsKey("note"));
+        assertEquals("2024-01-02", objects.get(1).get("day"));
+    }
+
+    @Test
+    void testParseErrors() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObjects("{\"day\": 1}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[1, 2"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("\"unterminated"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[1] trailing"));
+    }
+}